@@ -0,0 +1,318 @@
+package chess.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.ChessModel;
+import chess.IChessPiece;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceKind;
+
+/*********************************************************************
+JMH benchmarks of the rule engine over a fixed corpus of opening,
+middlegame and endgame positions. Each call of a benchmark method is
+one operation on the next position or move of the corpus, taken in
+turn, so the time per operation is averaged over the whole corpus.
+Allocation per operation is reported by the gc profiler.
+Usage: {@code java -jar target/benchmarks.jar -prof gc}
+
+@version March 2013
+*********************************************************************/
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class RuleBenchmark {
+
+	/** the corpus, as FEN */
+	static final String[] CORPUS = {
+		// opening
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+		"r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 2 3",
+		"rnbqkb1r/pp2pppp/3p1n2/8/3NP3/8/PPP2PPP/RNBQKB1R w - - 1 5",
+		// middlegame
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+		"r2q1rk1/pp2bppp/2n1pn2/3p4/3P4/2NBPN2/PP3PPP/R2Q1RK1 b - - 4 9",
+		"r1b2rk1/2q1bppp/p2ppn2/1p6/3NP3/1BN1B3/PPP1QPPP/R4RK1 w - - 0 11",
+		// endgame
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"8/5pk1/6p1/8/3R4/6P1/5PK1/1r6 b - - 3 41",
+		"4k3/8/8/3q4/8/8/3Q4/4K3 w - - 0 60",
+		// checkmated and in check
+		"rnb1kbnr/pppp1ppp/8/4p3/6Pq/5P2/PPPPP2P/RNBQKBNR w - - 1 3",
+		"rnbqkbnr/ppp2ppp/3p4/1B2p3/4P3/8/PPPP1PPP/RNBQK1NR b - - 1 3",
+	};
+
+	/** the positions of the corpus */
+	private ChessModel[] models;
+
+	/** every legal move of the corpus, as Move objects */
+	private Move[] legal;
+
+	/** the position each legal move is made in */
+	private ChessModel[] legalModels;
+
+	/** every move from each piece of the player to move to every
+	 * square, as probed by GUI clicks
+	 */
+	private Move[] probes;
+
+	/** the position each probe is made in */
+	private ChessModel[] probeModels;
+
+	/** the next position, legal move and probe taken */
+	private int position, legalMove, probe;
+
+	/** reusable move buffer for generation */
+	private final MoveList buffer = new MoveList();
+
+	/** reusable model for reading FEN */
+	private final ChessModel reader = new ChessModel();
+
+	/** reusable buffer for writing FEN */
+	private final StringBuilder writer = new StringBuilder();
+
+/*********************************************************************
+Builds the corpus and the moves it probes.
+
+@param none
+@return none
+*********************************************************************/
+	@Setup
+	public void setUp() {
+		models = new ChessModel[CORPUS.length];
+		List<Move> moves = new ArrayList<Move>();
+		List<ChessModel> movesIn = new ArrayList<ChessModel>();
+		List<Move> clicks = new ArrayList<Move>();
+		List<ChessModel> clicksIn = new ArrayList<ChessModel>();
+		for (int i = 0; i < CORPUS.length; i++) {
+			ChessModel model = ChessModel.fromFen(CORPUS[i]);
+			models[i] = model;
+			
+			// legal moves, as the GUI would see them
+			List<Move> list = new ArrayList<Move>();
+			model.generateLegalMoves(list);
+			for (Move move : list) {
+				moves.add(move);
+				movesIn.add(model);
+			}
+			
+			// every probe of the player to move
+			for (Move move : probes(model, null)) {
+				clicks.add(move);
+				clicksIn.add(model);
+			}
+		}
+		legal = moves.toArray(new Move[moves.size()]);
+		legalModels = movesIn.toArray(new ChessModel[movesIn.size()]);
+		probes = clicks.toArray(new Move[clicks.size()]);
+		probeModels = clicksIn.toArray(new ChessModel[clicksIn.size()]);
+	}
+
+/*********************************************************************
+Returns every move from a piece of the player to move to every
+square of the board.
+
+@param model the position probed
+@param kind the kind of piece probed, or null for every kind
+@return List the probes
+*********************************************************************/
+	static List<Move> probes(ChessModel model, PieceKind kind) {
+		List<Move> list = new ArrayList<Move>();
+		for (int r = 0; r < 8; r++) {
+			for (int c = 0; c < 8; c++) {
+				IChessPiece piece = model.pieceAt(r, c);
+				if (piece != null &&
+						piece.player() == model.currentPlayer() &&
+						(kind == null || piece.kind() == kind)) {
+					for (int square = 0; square < 64; square++) {
+						list.add(new Move(r, c, square / 8, square % 8));
+					}
+				}
+			}
+		}
+		return list;
+	}
+
+/*********************************************************************
+Returns the next position of the corpus.
+
+@param none
+@return ChessModel the position
+*********************************************************************/
+	private ChessModel nextPosition() {
+		ChessModel model = models[position];
+		position = position + 1 == models.length ? 0 : position + 1;
+		return model;
+	}
+
+/*********************************************************************
+Checks the next legal move of the corpus with ChessModel.isValidMove.
+
+@param none
+@return boolean whether the move is valid
+*********************************************************************/
+	@Benchmark
+	public boolean isValidMoveLegal() {
+		int i = legalMove;
+		legalMove = i + 1 == legal.length ? 0 : i + 1;
+		return legalModels[i].isValidMove(legal[i]);
+	}
+
+/*********************************************************************
+Checks the next probe of the corpus with ChessModel.isValidMove. Most
+probes are not legal moves.
+
+@param none
+@return boolean whether the move is valid
+*********************************************************************/
+	@Benchmark
+	public boolean isValidMoveProbe() {
+		int i = probe;
+		probe = i + 1 == probes.length ? 0 : i + 1;
+		return probeModels[i].isValidMove(probes[i]);
+	}
+
+/*********************************************************************
+Asks whether the player to move in the next position is in check.
+
+@param none
+@return boolean whether the player is in check
+*********************************************************************/
+	@Benchmark
+	public boolean inCheck() {
+		ChessModel model = nextPosition();
+		return model.inCheck(model.currentPlayer());
+	}
+
+/*********************************************************************
+Asks whether the game in the next position is over.
+
+@param none
+@return boolean whether the game is over
+*********************************************************************/
+	@Benchmark
+	public boolean isComplete() {
+		return nextPosition().isComplete();
+	}
+
+/*********************************************************************
+Generates the legal moves of the next position.
+
+@param none
+@return int the number of legal moves
+*********************************************************************/
+	@Benchmark
+	public int generateLegalMoves() {
+		buffer.clear();
+		nextPosition().generateLegalMoves(buffer);
+		return buffer.size();
+	}
+
+/*********************************************************************
+Reads the next position of the corpus from FEN.
+
+@param none
+@return long the hash of the position read
+*********************************************************************/
+	@Benchmark
+	public long setFen() {
+		reader.setFen(CORPUS[position]);
+		position = position + 1 == CORPUS.length ? 0 : position + 1;
+		return reader.hash();
+	}
+
+/*********************************************************************
+Writes the next position of the corpus in FEN.
+
+@param none
+@return int the length of the FEN written
+*********************************************************************/
+	@Benchmark
+	public int appendFen() {
+		writer.setLength(0);
+		nextPosition().appendFen(writer);
+		return writer.length();
+	}
+
+/*********************************************************************
+The probes of one kind of piece over the corpus, with the board
+arrays the pieces check them against.
+*********************************************************************/
+	@State(Scope.Thread)
+	public static class PieceProbes {
+
+		/** the kind of piece probed */
+		@Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+		public PieceKind kind;
+
+		/** the probes of pieces of the kind */
+		Move[] probes;
+
+		/** the board array each probe is made on */
+		IChessPiece[][][] boards;
+
+		/** the next probe taken */
+		int next;
+
+/*********************************************************************
+Builds the probes and board arrays.
+
+@param none
+@return none
+*********************************************************************/
+		@Setup
+		public void setUp() {
+			List<Move> moves = new ArrayList<Move>();
+			List<IChessPiece[][]> on = new ArrayList<IChessPiece[][]>();
+			for (String fen : CORPUS) {
+				ChessModel model = ChessModel.fromFen(fen);
+				IChessPiece[][] board = new IChessPiece[8][8];
+				for (int r = 0; r < 8; r++) {
+					for (int c = 0; c < 8; c++) {
+						board[r][c] = model.pieceAt(r, c);
+					}
+				}
+				for (Move move : RuleBenchmark.probes(model, kind)) {
+					moves.add(move);
+					on.add(board);
+				}
+			}
+			probes = moves.toArray(new Move[moves.size()]);
+			boards = on.toArray(new IChessPiece[on.size()][][]);
+		}
+	}
+
+/*********************************************************************
+Checks the next probe of a kind of piece with the piece's own
+isValidMove, as the GUI did before ChessModel checked moves itself.
+
+@param state the probes of the kind of piece
+@return boolean whether the piece can make the move
+*********************************************************************/
+	@Benchmark
+	public boolean pieceIsValidMove(PieceProbes state) {
+		int i = state.next;
+		state.next = i + 1 == state.probes.length ? 0 : i + 1;
+		Move move = state.probes[i];
+		IChessPiece[][] board = state.boards[i];
+		return board[move.fromRow][move.fromColumn].isValidMove(move,
+				board);
+	}
+}
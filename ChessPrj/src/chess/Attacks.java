@@ -0,0 +1,319 @@
+package chess;
+
+/*********************************************************************
+Precomputed move masks for every kind of piece. Each table holds one
+64-bit set per square, numbered as in Position, so a move can be 
+checked with a single bit test. Pawn tables are additionally indexed
+by player ordinal.
+Rooks and bishops use magic bitboards: the occupied squares that can
+block a slider on a square are multiplied by a fixed "magic" number
+that maps every possible arrangement of blockers to its own entry in
+a table of attacks filled when the class is loaded. Looking up a 
+slider therefore costs the same whatever the distance being checked.
+
+@version March 2013
+*********************************************************************/
+final class Attacks {
+
+	/** squares a knight on each square jumps to */
+	static final long[] KNIGHT = new long[64];
+
+	/** squares a king on each square steps to */
+	static final long[] KING = new long[64];
+
+	/** squares a pawn of each player on each square captures on */
+	static final long[][] PAWN = new long[2][64];
+
+	/** square a pawn of each player on each square steps forward to */
+	static final long[][] PAWN_STEP = new long[2][64];
+
+	/** square a pawn of each player on each square can jump to from
+	 * its starting row, or no square if it is elsewhere
+	 */
+	static final long[][] PAWN_JUMP = new long[2][64];
+
+	/** squares whose occupancy can block a rook on each square */
+	static final long[] ROOK_MASK = new long[64];
+
+	/** squares whose occupancy can block a bishop on each square */
+	static final long[] BISHOP_MASK = new long[64];
+
+	/** magic multipliers for rooks on each square */
+	private static final long[] ROOK_MAGIC = {
+		0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L,
+		0x0880100008000480L, 0x4200100420080200L, 0x8100020100080400L,
+		0x0200040110886200L, 0x0200008040220411L, 0x0404800084400220L,
+		0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+		0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L,
+		0x0442000102105084L, 0x9080010020804100L, 0x0040404000201009L,
+		0x0000808010002009L, 0x2200090021D00100L, 0x0008008008040080L,
+		0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+		0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L,
+		0x1000100080080080L, 0x0050500500080100L, 0x0000020080040080L,
+		0x0C10010400420810L, 0x1040008200005104L, 0x01808240088004A0L,
+		0x0882804004802000L, 0x0880402001001100L, 0x2000210409001000L,
+		0x2000480131001500L, 0x0000800400800200L, 0x000002380C001003L,
+		0x4600084882000431L, 0x0080002000504000L, 0x0300500020004002L,
+		0x0040408200220011L, 0x0010040008004040L, 0x0000080004008080L,
+		0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+		0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L,
+		0x0801100280080480L, 0x0242009008200600L, 0x1002000489500200L,
+		0x0040800200010080L, 0x0091800041000080L, 0x0000209300488001L,
+		0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+		0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L,
+		0x4000002840840112L
+	};
+
+	/** magic multipliers for bishops on each square */
+	private static final long[] BISHOP_MAGIC = {
+		0x20C0090901061081L, 0x0024040094030104L, 0x8210810200290200L,
+		0x0011040484620000L, 0x0081104002221000L, 0x0009012011001350L,
+		0x0081010802400380L, 0x0000420210010408L, 0x0008105002280050L,
+		0x0001028484040044L, 0x2A00880810408804L, 0x7020022282000100L,
+		0x0084040420100A50L, 0x000401010840E000L, 0x2020020210420888L,
+		0x0008084202012010L, 0x2010400810018800L, 0x0445122008020840L,
+		0x0804100808002008L, 0x0008002104110100L, 0x0061005820080800L,
+		0x2001000200820100L, 0x480C210084010800L, 0x3004442500480420L,
+		0x1010102240048100L, 0x00182009084220A3L, 0x8803090A10004205L,
+		0x0208080040202020L, 0x000C044084010040L, 0x00A1010002004106L,
+		0x6008210020640202L, 0x1600902112860801L, 0x00042008C1220200L,
+		0x010C042002440140L, 0x5022080200040820L, 0x0402004042940100L,
+		0x0860108400008020L, 0x000C080022021000L, 0x0264080652822100L,
+		0x4005031221010401L, 0x0004502410008400L, 0x000500B010A20400L,
+		0x0415094050080800L, 0x080000201800A104L, 0x4022A80304000110L,
+		0x4012140802028020L, 0x40200104010100A0L, 0x12810806008B0C41L,
+		0x0020441008080000L, 0x2002120084045420L, 0x0704020062080002L,
+		0x0000001084040001L, 0x0322200891240200L, 0xF040200210024800L,
+		0x0140824832008042L, 0x000210020A004602L, 0x0083042805141020L,
+		0x002C12009A011000L, 0x0041A00044140400L, 0x00004004020A0202L,
+		0x0000140010020210L, 0x2864160811012200L, 0x2060080841082A17L,
+		0xA010041108003100L
+	};
+
+	/** right shift turning a rook magic product into an index */
+	private static final int[] ROOK_SHIFT = new int[64];
+
+	/** right shift turning a bishop magic product into an index */
+	private static final int[] BISHOP_SHIFT = new int[64];
+
+	/** start of each square's entries in ROOK_TABLE */
+	private static final int[] ROOK_OFFSET = new int[64];
+
+	/** start of each square's entries in BISHOP_TABLE */
+	private static final int[] BISHOP_OFFSET = new int[64];
+
+	/** rook attacks for every square and arrangement of blockers */
+	private static final long[] ROOK_TABLE = new long[102400];
+
+	/** bishop attacks for every square and arrangement of blockers */
+	private static final long[] BISHOP_TABLE = new long[5248];
+
+	/** row and column directions a rook slides along */
+	private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0},
+			{0, -1}, {0, 1}};
+
+	/** row and column directions a bishop slides along */
+	private static final int[][] BISHOP_DIRECTIONS = {{-1, -1},
+			{-1, 1}, {1, -1}, {1, 1}};
+
+	static {
+		int[][] knight = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
+				{1, -2}, {1, 2}, {2, -1}, {2, 1}};
+		int[][] king = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1},
+				{0, 1}, {1, -1}, {1, 0}, {1, 1}};
+
+		for (int square = 0; square < 64; square++) {
+			int row = square >>> 3;
+			int column = square & 7;
+			KNIGHT[square] = steps(row, column, knight);
+			KING[square] = steps(row, column, king);
+
+			// white pawns move up the board, black pawns down
+			for (Player player : Player.values()) {
+				int color = player.ordinal();
+				int forward = player == Player.WHITE ? -1 : 1;
+				int start = player == Player.WHITE ? 6 : 1;
+
+				PAWN[color][square] = steps(row, column,
+						new int[][] {{forward, -1}, {forward, 1}});
+				PAWN_STEP[color][square] = steps(row, column,
+						new int[][] {{forward, 0}});
+				if (row == start) {
+					PAWN_JUMP[color][square] = steps(row, column,
+							new int[][] {{2 * forward, 0}});
+				}
+			}
+		}
+
+		// fill the slider tables
+		int rookOffset = 0;
+		int bishopOffset = 0;
+		for (int square = 0; square < 64; square++) {
+			ROOK_MASK[square] = mask(square, ROOK_DIRECTIONS);
+			ROOK_SHIFT[square] = 64 - Long.bitCount(ROOK_MASK[square]);
+			ROOK_OFFSET[square] = rookOffset;
+			fill(square, ROOK_DIRECTIONS, ROOK_MASK[square],
+					ROOK_MAGIC[square], ROOK_SHIFT[square], ROOK_TABLE,
+					rookOffset);
+			rookOffset += 1 << (64 - ROOK_SHIFT[square]);
+
+			BISHOP_MASK[square] = mask(square, BISHOP_DIRECTIONS);
+			BISHOP_SHIFT[square] = 64 - 
+					Long.bitCount(BISHOP_MASK[square]);
+			BISHOP_OFFSET[square] = bishopOffset;
+			fill(square, BISHOP_DIRECTIONS, BISHOP_MASK[square],
+					BISHOP_MAGIC[square], BISHOP_SHIFT[square],
+					BISHOP_TABLE, bishopOffset);
+			bishopOffset += 1 << (64 - BISHOP_SHIFT[square]);
+		}
+	}
+
+/*********************************************************************
+Private constructor, the class only holds static tables.
+
+@param none
+@return none
+*********************************************************************/
+	private Attacks() {
+	}
+
+/*********************************************************************
+Returns the squares a rook on a square attacks.
+
+@param square the square of the rook
+@param occupied the set of occupied squares
+@return long the attacked squares, including the first blocker in 
+		each direction
+*********************************************************************/
+	static long rook(int square, long occupied) {
+		return ROOK_TABLE[ROOK_OFFSET[square] + (int) (((occupied & 
+				ROOK_MASK[square]) * ROOK_MAGIC[square]) >>> 
+				ROOK_SHIFT[square])];
+	}
+
+/*********************************************************************
+Returns the squares a bishop on a square attacks.
+
+@param square the square of the bishop
+@param occupied the set of occupied squares
+@return long the attacked squares, including the first blocker in 
+		each direction
+*********************************************************************/
+	static long bishop(int square, long occupied) {
+		return BISHOP_TABLE[BISHOP_OFFSET[square] + (int) (((occupied & 
+				BISHOP_MASK[square]) * BISHOP_MAGIC[square]) >>> 
+				BISHOP_SHIFT[square])];
+	}
+
+/*********************************************************************
+Returns the squares a queen on a square attacks.
+
+@param square the square of the queen
+@param occupied the set of occupied squares
+@return long the attacked squares, including the first blocker in 
+		each direction
+*********************************************************************/
+	static long queen(int square, long occupied) {
+		return rook(square, occupied) | bishop(square, occupied);
+	}
+
+/*********************************************************************
+Returns the squares on the board reached by taking each of the given
+steps from a square.
+
+@param row the row of the starting square
+@param column the column of the starting square
+@param steps the row and column steps that may be taken
+@return long the set of squares reached
+*********************************************************************/
+	private static long steps(int row, int column, int[][] steps) {
+		long targets = 0;
+		for (int[] step : steps) {
+			int r = row + step[0];
+			int c = column + step[1];
+			if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+				targets |= 1L << Position.square(r, c);
+			}
+		}
+		return targets;
+	}
+
+/*********************************************************************
+Returns the squares reached by sliding from a square until the edge
+of the board or the first occupied square, which is included. Only 
+used to build the slider tables.
+
+@param square the starting square
+@param directions the row and column directions to slide along
+@param occupied the set of occupied squares
+@return long the set of squares reached
+*********************************************************************/
+	private static long slide(int square, int[][] directions, 
+			long occupied) {
+		long targets = 0;
+		for (int[] direction : directions) {
+			int row = (square >>> 3) + direction[0];
+			int column = (square & 7) + direction[1];
+			while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+				long bit = 1L << Position.square(row, column);
+				targets |= bit;
+				if ((occupied & bit) != 0) {
+					break;
+				}
+				row += direction[0];
+				column += direction[1];
+			}
+		}
+		return targets;
+	}
+
+/*********************************************************************
+Returns the squares whose occupancy can change what a slider on a 
+square attacks. The last square of each direction never blocks 
+anything and is left out.
+
+@param square the square of the slider
+@param directions the row and column directions it slides along
+@return long the set of relevant squares
+*********************************************************************/
+	private static long mask(int square, int[][] directions) {
+		long mask = 0;
+		for (int[] direction : directions) {
+			int row = (square >>> 3) + direction[0];
+			int column = (square & 7) + direction[1];
+			while (row + direction[0] >= 0 && row + direction[0] < 8 &&
+					column + direction[1] >= 0 && 
+					column + direction[1] < 8) {
+				mask |= 1L << Position.square(row, column);
+				row += direction[0];
+				column += direction[1];
+			}
+		}
+		return mask;
+	}
+
+/*********************************************************************
+Fills a slider's entries in an attack table with the attacks of every
+arrangement of blockers on its relevant squares.
+
+@param square the square of the slider
+@param directions the row and column directions it slides along
+@param mask the relevant squares of the slider
+@param magic the magic number of the square
+@param shift the right shift turning a product into an index
+@param table the attack table to fill
+@param offset the start of the square's entries in the table
+@return none
+*********************************************************************/
+	private static void fill(int square, int[][] directions, long mask,
+			long magic, int shift, long[] table, int offset) {
+		
+		// walk through every subset of the mask
+		long blockers = 0;
+		do {
+			int index = (int) ((blockers * magic) >>> shift);
+			table[offset + index] = slide(square, directions, blockers);
+			blockers = (blockers - mask) & mask;
+		} while (blockers != 0);
+	}
+}
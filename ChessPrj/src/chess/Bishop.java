@@ -32,10 +32,22 @@ Returns the designated name of this piece.
 	public String type() {
 		return "Bishop";
 	}
+
+/*********************************************************************
+Returns the kind of this piece.
+
+@param none
+@return PieceKind the kind of the piece
+*********************************************************************/
+	public PieceKind kind() {
+		return PieceKind.BISHOP;
+	}
 	
 /*********************************************************************
 Move validity test for Bishop. Bishop can be moved diagonally, so long
-as no pieces block the path to its destination.
+as no pieces block the path to its destination. The squares the 
+bishop attacks are looked up in the magic bitboard tables from the 
+pieces that could block it.
 
 @param move the move being examined
 @param board the board on which the move is being made
@@ -46,121 +58,16 @@ as no pieces block the path to its destination.
 		// the boolean value that is returned
 		boolean valid = false;
 		
-		// where to start for loops
-		int startRow;
-		int startColumn;
-		
 		// checks to see that the general move set is valid
 		if (super.isValidMove(move, board)) {
-
-			// checks for a diagonal move
-			if (Math.abs(move.toColumn - move.fromColumn) ==
-					Math.abs(move.toRow - move.fromRow)) {
-				
-				// checks for direction of move
-				if ((((move.toRow - move.fromRow) < 0) &&
-						((move.toColumn - move.fromColumn) < 0)) || 
-						(((move.toRow - move.fromRow) > 0) &&
-						((move.toColumn - move.fromColumn) > 0))) {
-					
-					// sets lower column value as the starting point
-					if (move.fromColumn > move.toColumn) {	
-						startColumn = move.toColumn;
-					}
-					else {
-						startColumn = move.fromColumn;					
-					}
-					
-					// sets the lower row value as the starting point
-					if (move.fromRow > move.toRow) {
-						startRow = move.toRow;						
-					}				
-					else {			
-						startRow = move.fromRow;					
-					}
-					
-					/* returns true if there is a clear path 
-					 * between points
-					 */
-					valid = true;
-					
-					/* iterates through the pieces between the 
-					 * two points
-					 */
-					for (int i = 0; i <= Math.abs(
-							move.toRow - move.fromRow); i++) {
-						
-						/* evaluates if there is a piece in 
-						 * the line, excluding end points
-						 */
-						if ((board[startRow + i][startColumn + i] != 
-								null) && 
-								((startRow + i) != 
-								move.fromRow) && 
-								((startRow + i) != 
-								move.toRow)) {
-							
-							/* returns false if pieces exist 
-							 * between points
-							 */
-							valid = false;
-						}
-					}
-				}
-				
-				// checks for direction of move
-				else if ((((move.toRow - move.fromRow) > 0) &&
-						((move.toColumn - move.fromColumn) < 0)) || 
-						(((move.toRow - move.fromRow) < 0) &&
-						((move.toColumn - move.fromColumn) > 0))) {
-					
-					/* sets the lower column value as the 
-					 * starting point
-					 */
-					if (move.fromColumn > move.toColumn) {
-						startColumn = move.toColumn;
-					}
-					else {
-						startColumn = move.fromColumn;
-					}
-					
-					/* sets the higher row value as the 
-					 * starting point
-					 */
-					if (move.fromRow > move.toRow) {	
-						startRow = move.fromRow;
-					}
-					else {
-						startRow = move.toRow;
-					}
-
-					/* returns true if there is a clear path 
-					 * between points
-					 */
-					valid = true;
-					
-					/* iterates through the pieces between the 
-					 * two points
-					 */
-					for (int i = 0; i <= Math.abs(
-							move.toRow - move.fromRow); i++) {
-						
-						/* evaluates if there is a piece in the 
-						 * line, excluding end points
-						 */
-						if ((board[startRow - i][startColumn + i] !=
-								null) && ((startRow - i) != 
-								move.fromRow) && ((startRow - i) != 
-								move.toRow)) {
-							
-							/* returns false if pieces exist between 
-							 * points
-							 */
-							valid = false;	
-						}
-					}
-				}
-			}
+			
+			// square the bishop starts on
+			int from = Position.square(move.fromRow, move.fromColumn);
+			
+			// checks the destination against the bishop's attacks
+			valid = (Attacks.bishop(from, occupancy(board, 
+					Attacks.BISHOP_MASK[from])) & (1L << 
+					Position.square(move.toRow, move.toColumn))) != 0;
 		}
 		return valid;
 	}
@@ -1,9 +1,12 @@
 package chess;
 
+import java.util.List;
+
 /*********************************************************************
 Defines the game and game logic used by ChessPanel.
-Game consists of a 2-dimensional array of IChessPieces, player turn,
-	and current error message if applicable.
+Game consists of a 2-dimensional array of IChessPieces mirrored by a
+	bitboard Position, player turn, and current error message if
+	applicable.
 Defines valid moves for IChessPieces, inCheck status, board size.
 Contains various methods for viewing and altering the board data.
 
@@ -17,116 +20,700 @@ public class ChessModel implements IChessModel {
 	/** array where chess piece data is stored */
 	private IChessPiece[][] board;
 	
+	/** bitboard copy of the board used for game logic queries */
+	private Position position;
+	
 	/** the current player */
 	private Player player;
 	
+	/** pawn structure scores of this model, created when first 
+	 * needed
+	 */
+	private PawnCache pawnCache;
+	
 	/** variable used in ChessPanel for displaying correct game 
 	 * message; 0 = not in check, 1 = moving into check, 2 = 
 	 * currently in check, 3 = invalid regardless
 	 */
 	private int messageCode;
+	
+	/** squares of the first and last rows, where pawns promote */
+	private static final long LAST_ROWS = 0xFF000000000000FFL;
+	
+	/** maximum number of moves that can be waiting to be undone */
+	public static final int UNDO_CAPACITY = 1024;
+	
+	/** the starting position in Forsyth-Edwards Notation */
+	public static final String START_FEN = 
+			"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1";
+	
+	/** each undoable move, packed as described in Moves */
+	private final int[] undoMoves = new int[UNDO_CAPACITY];
+	
+	/** piece number that made each undoable move, before any 
+	 * promotion
+	 */
+	private final byte[] undoMoved = new byte[UNDO_CAPACITY];
+	
+	/** piece number captured by each undoable move, or EMPTY */
+	private final byte[] undoCaptured = new byte[UNDO_CAPACITY];
+	
+	/** hash of the position before each undoable move */
+	private final long[] undoHashes = new long[UNDO_CAPACITY];
+	
+	/** player to move before each undoable move */
+	private final Player[] undoPlayers = new Player[UNDO_CAPACITY];
+	
+	/** halfmove clock before each undoable move */
+	private final short[] undoClocks = new short[UNDO_CAPACITY];
+	
+	/** moves since the last capture or pawn move, counting each 
+	 * player's move once
+	 */
+	private int halfmoveClock;
+	
+	/** number of the current move, starting at 1 and increasing 
+	 * after each move of black
+	 */
+	private int fullmoveNumber = 1;
+	
+	/** FEN letter of each piece number */
+	private static final String FEN_PIECES = "pnbrqkPNBRQK";
+	
+	/** number of moves waiting to be undone */
+	private int undoCount;
+	
 
 /*********************************************************************
 Constructor method, creates the chess game.
-Defines the board size, initializes board to starting positions, 
-sets current player to white.
+Defines the board size, initializes board to starting positions with
+the shared Pieces, sets current player to white.
 
 @param none
 @return none
 *********************************************************************/
 	public ChessModel() {
+		this(new Position());
+
+		// populates the board with black pieces
+		setPiece(0, 0, Pieces.of(Player.BLACK, PieceKind.ROOK));
+		setPiece(0, 1, Pieces.of(Player.BLACK, PieceKind.KNIGHT));
+		setPiece(0, 2, Pieces.of(Player.BLACK, PieceKind.BISHOP));
+		setPiece(0, 3, Pieces.of(Player.BLACK, PieceKind.QUEEN));
+		setPiece(0, 4, Pieces.of(Player.BLACK, PieceKind.KING));
+		setPiece(0, 5, Pieces.of(Player.BLACK, PieceKind.BISHOP));
+		setPiece(0, 6, Pieces.of(Player.BLACK, PieceKind.KNIGHT));
+		setPiece(0, 7, Pieces.of(Player.BLACK, PieceKind.ROOK));
+
+		for (int c = 0; c < 8; c++) {
+			setPiece(1, c, Pieces.of(Player.BLACK, PieceKind.PAWN));
+		}
+
+		// populates the board with white pieces
+		for (int c = 0; c < 8; c++) {
+			setPiece(6, c, Pieces.of(Player.WHITE, PieceKind.PAWN));
+		}
+
+		setPiece(7, 0, Pieces.of(Player.WHITE, PieceKind.ROOK));
+		setPiece(7, 1, Pieces.of(Player.WHITE, PieceKind.KNIGHT));
+		setPiece(7, 2, Pieces.of(Player.WHITE, PieceKind.BISHOP));
+		setPiece(7, 3, Pieces.of(Player.WHITE, PieceKind.QUEEN));
+		setPiece(7, 4, Pieces.of(Player.WHITE, PieceKind.KING));
+		setPiece(7, 5, Pieces.of(Player.WHITE, PieceKind.BISHOP));
+		setPiece(7, 6, Pieces.of(Player.WHITE, PieceKind.KNIGHT));
+		setPiece(7, 7, Pieces.of(Player.WHITE, PieceKind.ROOK));
+	}
+
+/*********************************************************************
+Constructor method, creates a game with an empty board and white to
+move.
+
+@param position the empty bitboards of the game
+@return none
+*********************************************************************/
+	private ChessModel(Position position) {
 		
 		// creates a new (8 by 8) board of chess pieces
 		board = new IChessPiece[numRows()][numColumns()];
+		this.position = position;
 		
 		// sets the starting player as white
 		player = Player.WHITE;
+	}
 
-		// populates the board with black pieces
-		board[0][0] = new Rook(Player.BLACK);
-		board[0][1] = new Knight(Player.BLACK);
-		board[0][2] = new Bishop(Player.BLACK);
-		board[0][3] = new Queen(Player.BLACK);
-		board[0][4] = new King(Player.BLACK);
-		board[0][5] = new Bishop (Player.BLACK);
-		board[0][6] = new Knight (Player.BLACK);
-		board[0][7] = new Rook(Player.BLACK);
+/*********************************************************************
+Copy constructor, creates a game in the same position as another, 
+with the same player to move. The copy shares no state with the 
+original, so each can be used by its own thread. Moves made on the
+original cannot be undone on the copy.
 
-		for (int c = 0; c < 8; c++) {
-			board[1][c] = new Pawn(Player.BLACK);
+@param other the game to copy
+@return none
+*********************************************************************/
+	public ChessModel(ChessModel other) {
+		board = new IChessPiece[numRows()][];
+		for (int r = 0; r < numRows(); r++) {
+			board[r] = other.board[r].clone();
 		}
+		position = new Position(other.position);
+		player = other.player;
+		messageCode = other.messageCode;
+		halfmoveClock = other.halfmoveClock;
+		fullmoveNumber = other.fullmoveNumber;
+	}
 
-		// populates the board with white pieces
-		for (int c = 0; c < 8; c++) {
-			board[6][c] = new Pawn(Player.WHITE);
+/*********************************************************************
+Puts this game in the same position as another, with the same player
+to move, as the copy constructor does but without allocating. Any 
+moves waiting to be undone are forgotten.
+
+@param other the game to copy
+@return none
+*********************************************************************/
+	void set(ChessModel other) {
+		for (int r = 0; r < numRows(); r++) {
+			System.arraycopy(other.board[r], 0, board[r], 0, 
+					numColumns());
 		}
+		position.set(other.position);
+		player = other.player;
+		messageCode = other.messageCode;
+		halfmoveClock = other.halfmoveClock;
+		fullmoveNumber = other.fullmoveNumber;
+		undoCount = 0;
+	}
+
+/*********************************************************************
+Creates a game from a position in Forsyth-Edwards Notation, for 
+example the starting position
+{@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}.
+See setFen for the fields that are read.
 
-		board[7][0] = new Rook(Player.WHITE);
-		board[7][1] = new Knight(Player.WHITE);
-		board[7][2] = new Bishop(Player.WHITE);
-		board[7][3] = new Queen(Player.WHITE);
-		board[7][4] = new King(Player.WHITE);
-		board[7][5] = new Bishop (Player.WHITE);
-		board[7][6] = new Knight (Player.WHITE);
-		board[7][7] = new Rook(Player.WHITE);
+@param fen the position in FEN
+@return ChessModel the game, with no moves to undo
+@throws IllegalArgumentException if the FEN is malformed
+*********************************************************************/
+	public static ChessModel fromFen(CharSequence fen) {
+		ChessModel model = new ChessModel(new Position());
+		model.setFen(fen);
+		return model;
 	}
 
 /*********************************************************************
-Method to determine if the game is over. When current player is in
-check, this method searches through all of that player's pieces for
-valid moves. If none are found, the method returns true and the game
-is over.
+Replaces the position with one in Forsyth-Edwards Notation, reading 
+it in a single pass without allocating. The piece placement is 
+required; the player to move, castling rights, en passant square, 
+halfmove clock and fullmove number may be left off and default to 
+"w - - 0 1". Castling and en passant are not part of these rules, so
+those fields are checked but otherwise ignored. Each player must have
+one king and no more pieces than a game can give it: at most 8 pawns,
+no pawn on the first or last row, and no more pieces beyond the 
+starting set than pawns missing. Any moves waiting to be undone are 
+forgotten.
+
+@param fen the position in FEN
+@return none
+@throws IllegalArgumentException if the FEN is malformed or has the
+		wrong pieces, in which case the board is left empty
+*********************************************************************/
+	public void setFen(CharSequence fen) {
+		try {
+			readFen(fen);
+		}
+		catch (IllegalArgumentException e) {
+			clear();
+			throw e;
+		}
+	}
+
+/*********************************************************************
+Empties the board and resets the player to move, the move counters 
+and the undo stack.
+
+@param none
+@return none
+*********************************************************************/
+	private void clear() {
+		for (long pieces = position.all(); pieces != 0; 
+				pieces &= pieces - 1) {
+			place(Long.numberOfTrailingZeros(pieces), Position.EMPTY);
+		}
+		position.hash = 0;
+		player = Player.WHITE;
+		halfmoveClock = 0;
+		fullmoveNumber = 1;
+		undoCount = 0;
+		messageCode = 0;
+	}
+
+/*********************************************************************
+Replaces the position with one in Forsyth-Edwards Notation, as 
+described for setFen.
+
+@param fen the position in FEN
+@return none
+@throws IllegalArgumentException if the FEN is malformed
+*********************************************************************/
+	private void readFen(CharSequence fen) {
+		clear();
+		
+		// place the pieces, row by row from row 0
+		int length = fen.length();
+		int i = 0;
+		int row = 0;
+		int column = 0;
+		while (i < length && fen.charAt(i) != ' ') {
+			char c = fen.charAt(i++);
+			if (c == '/') {
+				if (column != 8 || row == 7) {
+					throw badFen(fen, "row " + row + " is the wrong length");
+				}
+				row++;
+				column = 0;
+			}
+			else if (c >= '1' && c <= '8') {
+				column += c - '0';
+			}
+			else {
+				int piece = FEN_PIECES.indexOf(c);
+				if (piece < 0) {
+					throw badFen(fen, "unknown piece '" + c + "'");
+				}
+				if (column < 8) {
+					place(Position.square(row, column), piece);
+				}
+				column++;
+			}
+			if (column > 8) {
+				throw badFen(fen, "row " + row + " is the wrong length");
+			}
+		}
+		if (row != 7 || column != 8) {
+			throw badFen(fen, "the board must have 8 full rows");
+		}
+		for (int color = 0; color < 2; color++) {
+			checkPieces(fen, color);
+		}
+		
+		// player to move
+		i = skipSpaces(fen, i);
+		if (i < length) {
+			char c = fen.charAt(i++);
+			if (c == 'b') {
+				setNextPlayer();
+			}
+			else if (c != 'w') {
+				throw badFen(fen, "player to move must be w or b");
+			}
+		}
+		
+		// castling rights, which these rules do not have
+		i = skipSpaces(fen, i);
+		if (i < length && fen.charAt(i) == '-') {
+			i++;
+		}
+		else {
+			while (i < length && "KQkq".indexOf(fen.charAt(i)) >= 0) {
+				i++;
+			}
+		}
+		if (i < length && fen.charAt(i) != ' ') {
+			throw badFen(fen, "bad castling rights");
+		}
+		
+		// en passant square, which these rules do not have either
+		i = skipSpaces(fen, i);
+		if (i < length && fen.charAt(i) == '-') {
+			i++;
+		}
+		else if (i + 1 < length && fen.charAt(i) >= 'a' && 
+				fen.charAt(i) <= 'h' && (fen.charAt(i + 1) == '3' || 
+				fen.charAt(i + 1) == '6')) {
+			i += 2;
+		}
+		else if (i < length) {
+			throw badFen(fen, "bad en passant square");
+		}
+		
+		// move counters
+		i = skipSpaces(fen, i);
+		if (i < length) {
+			int start = i;
+			halfmoveClock = 0;
+			while (i < length && fen.charAt(i) >= '0' && 
+					fen.charAt(i) <= '9' && i - start < 5) {
+				halfmoveClock = halfmoveClock * 10 + fen.charAt(i++) - '0';
+			}
+			if (i == start) {
+				throw badFen(fen, "bad halfmove clock");
+			}
+			i = skipSpaces(fen, i);
+		}
+		if (i < length) {
+			int start = i;
+			fullmoveNumber = 0;
+			while (i < length && fen.charAt(i) >= '0' && 
+					fen.charAt(i) <= '9' && i - start < 5) {
+				fullmoveNumber = fullmoveNumber * 10 + 
+						fen.charAt(i++) - '0';
+			}
+			if (i == start || fullmoveNumber == 0) {
+				throw badFen(fen, "bad fullmove number");
+			}
+			i = skipSpaces(fen, i);
+		}
+		if (i < length) {
+			throw badFen(fen, "unexpected text after the position");
+		}
+	}
+
+/*********************************************************************
+Returns the position in Forsyth-Edwards Notation. Castling and en 
+passant are not part of these rules, so both fields are always "-".
+
+@param none
+@return String the position in FEN
+*********************************************************************/
+	public String toFen() {
+		StringBuilder fen = new StringBuilder(90);
+		appendFen(fen);
+		return fen.toString();
+	}
+
+/*********************************************************************
+Appends the position in Forsyth-Edwards Notation to a buffer, so 
+that many positions can be written without allocating.
+
+@param fen the buffer to append to
+@return none
+*********************************************************************/
+	public void appendFen(StringBuilder fen) {
+		
+		// piece placement, with runs of empty squares as digits
+		for (int row = 0; row < 8; row++) {
+			if (row > 0) {
+				fen.append('/');
+			}
+			int empty = 0;
+			for (int column = 0; column < 8; column++) {
+				int piece = position.pieceAt(Position.square(row, column));
+				if (piece == Position.EMPTY) {
+					empty++;
+				}
+				else {
+					if (empty > 0) {
+						fen.append((char) ('0' + empty));
+						empty = 0;
+					}
+					fen.append(FEN_PIECES.charAt(piece));
+				}
+			}
+			if (empty > 0) {
+				fen.append((char) ('0' + empty));
+			}
+		}
+		
+		// the other fields
+		fen.append(player == Player.WHITE ? " w" : " b");
+		fen.append(" - - ").append(halfmoveClock).append(' ');
+		fen.append(fullmoveNumber);
+	}
+
+/*********************************************************************
+Returns the number of moves made since the last capture or pawn 
+move, counting each player's move once.
+
+@param none
+@return int the halfmove clock
+*********************************************************************/
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+
+/*********************************************************************
+Returns the number of the current move, which starts at 1 and 
+increases after each move of black.
+
+@param none
+@return int the fullmove number
+*********************************************************************/
+	public int getFullmoveNumber() {
+		return fullmoveNumber;
+	}
+
+/*********************************************************************
+Returns the index of the first character at or after an index that 
+is not a space.
+
+@param text the text being read
+@param index where to start
+@return int the index of the next character that is not a space
+*********************************************************************/
+	private static int skipSpaces(CharSequence text, int index) {
+		while (index < text.length() && text.charAt(index) == ' ') {
+			index++;
+		}
+		return index;
+	}
+
+/*********************************************************************
+Checks that a player has the pieces a game could leave it: one king,
+and pawns plus pieces promoted from them that add up to at most 8. 
+This also keeps the number of legal moves within MoveList.CAPACITY.
+
+@param fen the FEN being read
+@param color the ordinal of the player
+@return none
+@throws IllegalArgumentException if the player has the wrong pieces
+*********************************************************************/
+	private void checkPieces(CharSequence fen, int color) {
+		String name = color == Player.WHITE.ordinal() ? "white" : "black";
+		if (Long.bitCount(position.pieces(color, Position.KING)) != 1) {
+			throw badFen(fen, name + " must have one king");
+		}
+		long pawns = position.pieces(color, Position.PAWN);
+		if ((pawns & LAST_ROWS) != 0) {
+			throw badFen(fen, name + " has a pawn on the first or " +
+					"last row");
+		}
+		
+		// pieces beyond the starting set must have been pawns
+		int promoted = Math.max(Long.bitCount(position.pieces(color, 
+				Position.KNIGHT)) - 2, 0) + Math.max(Long.bitCount(
+				position.pieces(color, Position.BISHOP)) - 2, 0) + 
+				Math.max(Long.bitCount(position.pieces(color, 
+				Position.ROOK)) - 2, 0) + Math.max(Long.bitCount(
+				position.pieces(color, Position.QUEEN)) - 1, 0);
+		if (Long.bitCount(pawns) + promoted > 8) {
+			throw badFen(fen, name + " has too many pieces");
+		}
+	}
+
+/*********************************************************************
+Creates the exception thrown for a malformed FEN.
+
+@param fen the FEN being read
+@param problem what is wrong with it
+@return IllegalArgumentException the exception to throw
+*********************************************************************/
+	private static IllegalArgumentException badFen(CharSequence fen, 
+			String problem) {
+		return new IllegalArgumentException("Bad FEN, " + problem + 
+				": " + fen);
+	}
+
+/*********************************************************************
+Method to determine if the game is over. The game is over when the 
+current player is in check and has no legal move left.
 
 @param none
 @return boolean true for game over, false for available moves left
 *********************************************************************/
 	public boolean isComplete() {
-		// value to be returned
-		boolean valid = false;
 		
-		// temporary move to be constructed
-		Move move;
+		// the game can only end while the current player is in check
+		if (inCheck(player) == false) {
+			return false;
+		}
+		
+		// the current player's pieces
+		long own = position.occupied[player.ordinal()];
+		
+		// the king can most often step out of check, so try it first
+		int king = position.kings[player.ordinal()];
+		if (king != Position.EMPTY) {
+			if (hasLegalMove(king)) {
+				return false;
+			}
+			own &= ~(1L << king);
+		}
+		
+		// look for any legal move of the other pieces
+		for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+			
+			// if a legal move exists, the game is not over
+			if (hasLegalMove(Long.numberOfTrailingZeros(pieces))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+/*********************************************************************
+Method to determine if the piece on a square has any legal move.
+
+@param from the square of the piece being examined
+@return boolean true if the piece can move, false if it cannot
+*********************************************************************/
+	private boolean hasLegalMove(int from) {
+		for (long targets = targets(from); targets != 0;
+				targets &= targets - 1) {
+			if (isLegal(from, Long.numberOfTrailingZeros(targets))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+/*********************************************************************
+Adds every legal move of the current player to a list of packed 
+moves. Only the squares each piece can actually reach are considered,
+and each candidate is tried once on the bitboards to make sure it 
+does not leave the player's king attacked. A pawn reaching the last 
+row produces one move for each piece it can be promoted to.
+
+@param moves the list the legal moves are added to
+@return none
+*********************************************************************/
+	public void generateLegalMoves(MoveList moves) {
+		generate(moves, false, -1L, -1L);
+	}
+
+/*********************************************************************
+Adds the legal moves of the current player that arrive on one square
+to a list of packed moves. Only moves that can reach the square are 
+tried for legality, so this is much cheaper than generating every 
+move when the destination is known, as when reading recorded games.
+
+@param moves the list the legal moves are added to
+@param to the square the moves arrive on
+@return none
+*********************************************************************/
+	public void generateLegalMoves(MoveList moves, int to) {
 		
-		// if current player is in check
-		if (inCheck(player)) {
+		// only pieces in line with the square or a knight's move away
+		generate(moves, false, Attacks.queen(to, 0) | Attacks.KNIGHT[to],
+				1L << to);
+	}
+
+/*********************************************************************
+Adds the legal captures and promotions of the current player to a 
+list of packed moves, for searches that only resolve exchanges.
+
+@param moves the list the legal moves are added to
+@return none
+*********************************************************************/
+	public void generateCaptures(MoveList moves) {
+		generate(moves, true, -1L, -1L);
+	}
+
+/*********************************************************************
+Adds the legal moves of the current player to a list of packed 
+moves, as described for generateLegalMoves.
+
+@param moves the list the legal moves are added to
+@param capturesOnly true to add only captures and promotions
+@param movers the squares of the pieces whose moves are wanted
+@param destinations the squares moves may arrive on
+@return none
+*********************************************************************/
+	private void generate(MoveList moves, boolean capturesOnly, 
+			long movers, long destinations) {
+		
+		// the current player's pieces
+		int color = player.ordinal();
+		long own = position.occupied[color] & movers;
+		
+		// squares holding the opposite player's pieces
+		long enemy = position.occupied[1 - color];
+		
+		// iterate through the current player's pieces
+		for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+			int from = Long.numberOfTrailingZeros(pieces);
 			
-			// temporarily set valid to true
-			valid = true;
+			// whether the piece is a pawn about to be promoted
+			boolean promotes = Position.kind(position.pieceAt(from)) ==
+					Position.PAWN && (Attacks.PAWN_STEP[color][from] & 
+					LAST_ROWS) != 0;
 			
-			// look for all that player's pieces on the board
-			for (int r1 = 0; r1 < numRows(); r1++) {
-				for (int c1 = 0; c1 < numColumns(); c1++) {
-					
-					// if the piece is not null, get player
-					if (board[r1][c1] != null) {
-						
-						// found a piece of the current player
-						if (board[r1][c1].player() == player) {
-
-							// search for a spot to move to
-							for (int r2 = 0; r2 < numRows(); r2++) {
-								for (int c2 = 0; c2 < numColumns();
-										c2++) {
-
-									/* construct a temporary move to 
-									 * check validity
-									 */
-									move = new Move(r1, c1, r2, c2);
-
-									/* if a valid move exists, the 
-									 * game is not over
-									 */
-									if (isValidMove(move) == true) {
-										valid = false;
-									}
-								}
-							}	
-						}
+			// the squares the piece can reach
+			long targets = targets(from) & destinations;
+			if (capturesOnly && promotes == false) {
+				targets &= enemy;
+			}
+			
+			// iterate through them
+			for (; targets != 0; targets &= targets - 1) {
+				int to = Long.numberOfTrailingZeros(targets);
+				
+				// keep the move if the king is left safe
+				if (isLegal(from, to)) {
+					int flags = (enemy & (1L << to)) != 0 ? 
+							Moves.CAPTURE : 0;
+					if (promotes) {
+						moves.add(Moves.encode(from, to, 
+								Position.QUEEN, flags));
+						moves.add(Moves.encode(from, to, 
+								Position.ROOK, flags));
+						moves.add(Moves.encode(from, to, 
+								Position.BISHOP, flags));
+						moves.add(Moves.encode(from, to, 
+								Position.KNIGHT, flags));
+					}
+					else {
+						moves.add(Moves.encode(from, to, 0, flags));
 					}
 				}
 			}
 		}
-		return valid;
+	}
+
+/*********************************************************************
+Adds the legal moves of the current player to a list of packed moves
+and puts them in the order they should be tried, as described in 
+MoveOrder. The moves are then taken with the order's next method, 
+best first, and the order learns from each cutoff reported to it.
+
+@param moves the list the legal moves are added to
+@param order the move order, which may be shared by every ply of a 
+		search
+@param ply the distance of the position from the root
+@return none
+*********************************************************************/
+	public void generateOrderedMoves(MoveList moves, MoveOrder order, 
+			int ply) {
+		generateOrderedMoves(moves, order, ply, Moves.NONE);
+	}
+
+/*********************************************************************
+Adds the legal moves of the current player to a list of packed moves
+in the order they should be tried, as described above, with a move 
+remembered for the position tried first.
+
+@param moves the list the legal moves are added to
+@param order the move order
+@param ply the distance of the position from the root
+@param hashMove the move to try first, or Moves.NONE
+@return none
+*********************************************************************/
+	public void generateOrderedMoves(MoveList moves, MoveOrder order, 
+			int ply, int hashMove) {
+		generateLegalMoves(moves);
+		order.order(this, moves, ply, hashMove);
+	}
+
+/*********************************************************************
+Adds every legal move of the current player to a list of Move 
+objects. Promotions appear once, as Move objects are always promoted
+to queens.
+
+@param moves the list the legal moves are added to
+@return none
+*********************************************************************/
+	public void generateLegalMoves(List<Move> moves) {
+		
+		// generate the packed moves
+		MoveList list = new MoveList();
+		generateLegalMoves(list);
+		
+		// convert them, skipping promotions to anything but a queen
+		for (int i = 0; i < list.size(); i++) {
+			int move = list.get(i);
+			if (Moves.promotion(move) == 0 || 
+					Moves.promotion(move) == Position.QUEEN) {
+				moves.add(new Move(move));
+			}
+		}
 	}
 
 /*********************************************************************
@@ -149,72 +736,33 @@ has been made.
 			if (board[move.fromRow][move.fromColumn].isValidMove(
 					move, board) == true) {
 
-				// copy the current pieces in from / to positions
-				IChessPiece fromPiece = 
-						board[move.fromRow][move.fromColumn];
-				IChessPiece toPiece = 
-						board[move.toRow][move.toColumn];
-
-				// if the current player is not in check
-				if (inCheck(player) == false) {
-
-					// attempt the move
-					move(move);
-
-					// if it didn't put the player in check
-					if (inCheck(player) == false) {
-
-						// no error message
-						messageCode = 0;
-						
-						// it is a valid move
-						valid = true;
-					}
-
-					// if it put the player in check
-					else if (inCheck(player) == true) {
+				// whether the current player starts out in check
+				boolean wasInCheck = inCheck(player);
+				
+				// if trying it on the bitboards leaves the king safe
+				if (isLegal(Position.square(move.fromRow, 
+						move.fromColumn), Position.square(move.toRow, 
+						move.toColumn))) {
 
-						// error, king is placed in check
-						messageCode = 1;
-						
-						// invalid move
-						valid = false;
-					}
+					// no error message
+					messageCode = 0;
 					
-					// replace the original pieces
-					board[move.fromRow][move.fromColumn] = fromPiece;
-					board[move.toRow][move.toColumn] = toPiece;
+					// it is a valid move
+					valid = true;
 				}
 
-				// if the player is already in check
-				else if (inCheck(player) == true) {
-
-					// attempt the move
-					move(move);
-
-					// if player is no longer in check
-					if (inCheck(player) == false) {
-						
-						// no error message
-						messageCode = 0;
-						
-						// it is a valid move
-						valid = true;
-					}
+				// if it put the player in check
+				else if (wasInCheck == false) {
 
-					// else the player is still in check
-					else {
+					// error, king is placed in check
+					messageCode = 1;
+				}
 
-						// king is left in check message
-						messageCode = 2;
-						
-						// invalid move
-						valid = false;
-					}
+				// else the player is still in check
+				else {
 
-					// return the pieces to their original positions
-					board[move.fromRow][move.fromColumn] = fromPiece;
-					board[move.toRow][move.toColumn] = toPiece;
+					// king is left in check message
+					messageCode = 2;
 				}
 			}
 			
@@ -242,88 +790,571 @@ cell, irrespective of validity.
 
 		// set the "from" piece to null
 		board[move.fromRow][move.fromColumn] = null;
+		
+		// mirror the move on the bitboards
+		position.move(Position.square(move.fromRow, move.fromColumn),
+				Position.square(move.toRow, move.toColumn));
+	}
+
+/*********************************************************************
+Makes a move and passes the turn to the other player. Pawns reaching
+the last row are promoted to queens. The move is recorded on the undo
+stack so that it can be taken back with unmakeMove.
+
+@param move the move being made
+@return none
+*********************************************************************/
+	public void makeMove(Move move) {
+		makeMove(move.pack());
+	}
+
+/*********************************************************************
+Makes a packed move and passes the turn to the other player. A pawn 
+reaching the last row is promoted to the move's promotion kind, or to
+a queen if it has none. The move is recorded on the undo stack so 
+that it can be taken back with unmakeMove; when UNDO_CAPACITY moves 
+are already waiting, the oldest of them is forgotten to make room.
+
+@param move the packed move being made
+@return none
+*********************************************************************/
+	public void makeMove(int move) {
+		
+		// make room to record the move
+		if (undoCount == UNDO_CAPACITY) {
+			dropOldestUndo();
+		}
+		
+		// squares the move is made between
+		int from = Moves.from(move);
+		int to = Moves.to(move);
+		
+		// the piece being moved
+		int piece = position.pieceAt(from);
+		
+		// record what is needed to take the move back
+		undoMoves[undoCount] = move;
+		undoMoved[undoCount] = (byte) piece;
+		undoCaptured[undoCount] = (byte) position.pieceAt(to);
+		undoPlayers[undoCount] = player;
+		undoHashes[undoCount] = position.hash;
+		undoClocks[undoCount] = (short) halfmoveClock;
+		undoCount++;
+		
+		// captures and pawn moves restart the halfmove clock
+		if (Position.kind(piece) == Position.PAWN || 
+				position.pieceAt(to) != Position.EMPTY) {
+			halfmoveClock = 0;
+		}
+		else {
+			halfmoveClock++;
+		}
+		if (player == Player.BLACK) {
+			fullmoveNumber++;
+		}
+		
+		// move the piece
+		board[to >>> 3][to & 7] = board[from >>> 3][from & 7];
+		board[from >>> 3][from & 7] = null;
+		position.move(from, to);
+		
+		// promote a pawn that reached the last row
+		if (Position.kind(piece) == Position.PAWN && 
+				(LAST_ROWS & (1L << to)) != 0) {
+			int kind = Moves.promotion(move);
+			place(to, Position.piece(Position.color(piece), 
+					kind != 0 ? kind : Position.QUEEN));
+		}
+		
+		// next player's turn
+		setNextPlayer();
+	}
+
+/*********************************************************************
+Forgets the oldest move waiting to be undone, moving the others down 
+the undo stack. This only happens in games longer than UNDO_CAPACITY 
+moves, so the copying does not slow down searches.
+
+@param none
+@return none
+*********************************************************************/
+	private void dropOldestUndo() {
+		undoCount--;
+		System.arraycopy(undoMoves, 1, undoMoves, 0, undoCount);
+		System.arraycopy(undoMoved, 1, undoMoved, 0, undoCount);
+		System.arraycopy(undoCaptured, 1, undoCaptured, 0, undoCount);
+		System.arraycopy(undoHashes, 1, undoHashes, 0, undoCount);
+		System.arraycopy(undoPlayers, 1, undoPlayers, 0, undoCount);
+		System.arraycopy(undoClocks, 1, undoClocks, 0, undoCount);
 	}
 
 /*********************************************************************
-Method to determine if player p's king is currently in check.
+Takes back the most recent move made with makeMove, restoring the 
+moved and captured pieces and the player to move.
+
+@param none
+@return none
+@throws IllegalStateException if there is no move to undo
+*********************************************************************/
+	public void unmakeMove() {
+		
+		// make sure there is a move to take back
+		if (undoCount == 0) {
+			throw new IllegalStateException("No move to undo");
+		}
+		undoCount--;
+		
+		// put the pieces back where they were
+		place(Moves.from(undoMoves[undoCount]), undoMoved[undoCount]);
+		place(Moves.to(undoMoves[undoCount]), undoCaptured[undoCount]);
+		player = undoPlayers[undoCount];
+		position.hash = undoHashes[undoCount];
+		halfmoveClock = undoClocks[undoCount];
+		if (player == Player.BLACK) {
+			fullmoveNumber--;
+		}
+	}
+
+/*********************************************************************
+Returns the most recent move made with makeMove that has not been 
+taken back.
+
+@param none
+@return int the packed move, or Moves.NONE if there is none
+*********************************************************************/
+	public int lastMove() {
+		return undoCount > 0 ? undoMoves[undoCount - 1] : Moves.NONE;
+	}
+
+/*********************************************************************
+Forgets the moves waiting to be undone, keeping the position. Long 
+replays, such as games read from a file, call this so that makeMove 
+never has to make room on a full undo stack.
+
+@param none
+@return none
+*********************************************************************/
+	public void clearUndo() {
+		undoCount = 0;
+	}
+
+/*********************************************************************
+Reports whether there is a move that unmakeMove can take back.
+
+@param none
+@return boolean true if a move can be undone
+*********************************************************************/
+	public boolean canUndo() {
+		return undoCount > 0;
+	}
+
+/*********************************************************************
+Method to determine if player p's king is currently in check. The 
+king's square is tracked as pieces move, and the board is searched 
+outwards from it for pieces of the opposite player that attack it.
 
 @param p player being examined
 @return boolean true for in check, false for not currently in check
 *********************************************************************/
 	public boolean inCheck(Player p) {
 		
+		// square of player p's king
+		int square = position.kings[p.ordinal()];
+		
+		// a player without a king cannot be in check
+		return square != Position.EMPTY && isAttacked(square, 
+				p.next().ordinal());
+	}
+
+/*********************************************************************
+Method to score the current position for the current player: the 
+value of each player's pieces plus the bonus for the squares they 
+stand on and for their pawn structure, blended between middlegame 
+and endgame weights by how many pieces are left. The piece totals 
+are kept up to date as pieces move and pawn structure is looked up 
+in the model's PawnCache, so this rarely costs more than a few 
+array reads.
+
+@param none
+@return int the current player's score minus the opposite player's,
+		in centipawns
+*********************************************************************/
+	public int evaluate() {
+		
+		// how far the game is from the endgame
+		int maxPhase = position.weights.maxPhase;
+		int phase = Math.max(Math.min(position.phase, maxPhase), 0);
+		
+		// white's advantage under each set of weights
+		int white = Player.WHITE.ordinal();
+		int mg = position.mg[white] - position.mg[1 - white];
+		int eg = position.eg[white] - position.eg[1 - white];
+		
+		// pawn structure, from the cache if the pawns were seen before
+		if (pawnCache == null) {
+			pawnCache = new PawnCache(PawnCache.DEFAULT_ENTRIES);
+		}
+		int entry = pawnCache.lookup(position);
+		mg += pawnCache.mg[entry];
+		eg += pawnCache.eg[entry];
+		int score = (mg * phase + eg * (maxPhase - phase)) / maxPhase;
+		return player == Player.WHITE ? score : -score;
+	}
+
+/*********************************************************************
+Sets the weights used by evaluate.
+
+@param weights the new weights
+@return none
+*********************************************************************/
+	public void setWeights(EvalWeights weights) {
+		position.setWeights(weights);
+	}
+
+/*********************************************************************
+Sets the cache evaluate looks up pawn structure in, so its size can 
+be chosen. A cache must not be shared between threads.
+
+@param cache the pawn structure cache
+@return none
+*********************************************************************/
+	public void setPawnCache(PawnCache cache) {
+		pawnCache = cache;
+	}
+
+/*********************************************************************
+Returns the cache evaluate looks up pawn structure in, for its 
+statistics.
+
+@param none
+@return PawnCache the cache, created if evaluate has not yet been 
+		called
+*********************************************************************/
+	public PawnCache getPawnCache() {
+		if (pawnCache == null) {
+			pawnCache = new PawnCache(PawnCache.DEFAULT_ENTRIES);
+		}
+		return pawnCache;
+	}
+
+/*********************************************************************
+Returns the squares of the passed pawns of both players, pawns that 
+no opposing pawn can block or capture on their way to the last row.
+
+@param none
+@return long the set of squares holding passed pawns
+*********************************************************************/
+	public long passedPawns() {
+		PawnCache cache = getPawnCache();
+		return cache.passed[cache.lookup(position)];
+	}
+
+/*********************************************************************
+Returns the weights used by evaluate.
+
+@param none
+@return EvalWeights the current weights
+*********************************************************************/
+	public EvalWeights getWeights() {
+		return position.weights;
+	}
+
+/*********************************************************************
+Returns the piece number (see Position) on a square.
+
+@param square the square being examined
+@return int the piece number, or Position.EMPTY
+*********************************************************************/
+	int pieceOn(int square) {
+		return position.pieceAt(square);
+	}
+
+/*********************************************************************
+Method to add up the value of player p's pieces, counted from the 
+bitboards rather than the board array and valued by the middlegame 
+values of the model's weights, as in see.
+
+@param p player being examined
+@return int the value of the player's pieces in centipawns
+*********************************************************************/
+	public int material(Player p) {
+		
 		// value to be returned
-		boolean valid = false;
+		int total = 0;
 		
-		// temporary move to be constructed
-		Move move;
+		// count each kind of piece
+		int[] values = position.weights.mgValues;
+		for (int kind = 0; kind < Position.KINDS; kind++) {
+			total += values[kind] * Long.bitCount(position.pieces(
+					p.ordinal(), kind));
+		}
+		return total;
+	}
+
+/*********************************************************************
+Method to estimate the material won or lost by a capture once every 
+piece able to recapture on the same square has taken its turn, 
+least valuable piece first (static exchange evaluation). Either 
+player may stop capturing when it no longer pays, and a king only 
+recaptures if the square is no longer defended. Pawns recapturing on
+the last row count as queens. Sliders lined up behind other 
+attackers join in as the pieces in front of them are used up. Pins 
+are not considered, and the first capture is taken to be legal. 
+Pieces are valued by the middlegame values of the model's weights. 
+Nothing is stored in the model, so this is safe to call from GUI and 
+analysis threads at once.
+
+@param move the packed move making the first capture
+@return int the material gained by the moving player in centipawns,
+		which is negative if the capture loses material
+*********************************************************************/
+	public int see(int move) {
+		int from = Moves.from(move);
+		int to = Moves.to(move);
+		int piece = position.pieceAt(from);
+		int target = position.pieceAt(to);
+		int[] values = position.weights.mgValues;
 		
-		// from row of move
-		int fromRow;
+		// whether a pawn reaching the square is promoted
+		boolean lastRow = (LAST_ROWS & (1L << to)) != 0;
 		
-		// from column of move
-		int fromColumn;
+		// material won by each capture in the sequence
+		int[] gain = new int[32];
+		gain[0] = target == Position.EMPTY ? 0 : 
+				values[Position.kind(target)];
 		
-		// to row of move
-		int toRow = -1;
+		// value of the piece now standing on the square
+		int value = values[Position.kind(piece)];
 		
-		// to column of move
-		int toColumn = -1;
+		// a pawn reaching the last row becomes another piece
+		if (Position.kind(piece) == Position.PAWN && lastRow) {
+			int kind = Moves.promotion(move) != 0 ? 
+					Moves.promotion(move) : Position.QUEEN;
+			gain[0] += values[kind] - values[Position.PAWN];
+			value = values[kind];
+		}
 		
-		// iterate through the positions on the board
-		for (int r = 0; r < numRows(); r++) {
-			for (int c = 0; c < numColumns(); c++) {
-				
-				// if a piece exists in specified location
-				if (board[r][c] != null) {
-					
-					// check if it is player p's king
-					if (board[r][c].player().equals(p) && 
-							board[r][c].type().equals("King")) {
-						
-						/* set "to" location of the move to that
-						 * of player p's king
-						 */
-						toRow = r;
-						toColumn = c;
-					}
-				}
+		// pieces still on the board, and those attacking the square
+		long all = position.all() & ~(1L << from);
+		long attackers = attackers(to, all) & all;
+		
+		// the sliders whose attacks can open up
+		long diagonal = position.pieces[Position.piece(0, 
+				Position.BISHOP)] | position.pieces[Position.piece(1,
+				Position.BISHOP)] | position.pieces[Position.piece(0,
+				Position.QUEEN)] | position.pieces[Position.piece(1,
+				Position.QUEEN)];
+		long straight = position.pieces[Position.piece(0, 
+				Position.ROOK)] | position.pieces[Position.piece(1,
+				Position.ROOK)] | position.pieces[Position.piece(0,
+				Position.QUEEN)] | position.pieces[Position.piece(1,
+				Position.QUEEN)];
+		
+		// the players take turns recapturing
+		int color = 1 - Position.color(piece);
+		int depth = 0;
+		while (true) {
+			
+			// the player's least valuable attacker
+			long own = attackers & position.occupied[color];
+			if (own == 0) {
+				break;
 			}
+			int kind = Position.PAWN;
+			long candidates = own & position.pieces(color, kind);
+			while (candidates == 0) {
+				kind++;
+				candidates = own & position.pieces(color, kind);
+			}
+			
+			// a king cannot capture onto a defended square
+			if (kind == Position.KING && (attackers & 
+					position.occupied[1 - color]) != 0) {
+				break;
+			}
+			
+			/* capture the piece standing on the square, promoting a 
+			 * pawn that reaches the last row
+			 */
+			depth++;
+			gain[depth] = value - gain[depth - 1];
+			value = values[kind];
+			if (kind == Position.PAWN && lastRow) {
+				gain[depth] += values[Position.QUEEN] - value;
+				value = values[Position.QUEEN];
+			}
+			
+			// remove the attacker, uncovering any slider behind it
+			all &= ~Long.lowestOneBit(candidates);
+			attackers |= (Attacks.bishop(to, all) & diagonal) | 
+					(Attacks.rook(to, all) & straight);
+			attackers &= all;
+			color = 1 - color;
 		}
 		
-		// iterate through positions on the board again
-		for (int r = 0; r < numRows(); r++) {
-			for (int c = 0; c < numColumns(); c++) {
-				
-				// if a piece exists at specified location
-				if (board[r][c] != null) {
-					
-					// check if it is the opposite player's piece
-					if (board[r][c].player().equals(p.next())) {
-						
-						/* if so, set the "from" coordinate of the
-						 * move to the location of opposing player's
-						 * piece
-						 */
-						fromRow = r;
-						fromColumn = c;
-						
-						// construct the move
-						move = new Move(fromRow, fromColumn, 
-								toRow, toColumn);
-						
-						/* if a piece of the opposite player can
-						 * make a valid move to player p's king,
-						 * player p's king is in check
-						 */
-						if (board[r][c].isValidMove(move, board)) {
-							valid = true;
-						}
-					}
-				}
+		// each player only captures if it does not lose by it
+		while (depth > 0) {
+			gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+			depth--;
+		}
+		return gain[0];
+	}
+
+/*********************************************************************
+Method to score the current position once the captures in it have 
+been played out, by a CaptureSearch that only tries legal captures 
+and promotions not losing material by static exchange evaluation. 
+The captures are made on a copy, so the board is not changed and 
+this is safe to call from GUI and analysis threads at once. Each 
+call creates its own CaptureSearch; a caller resolving many 
+positions can keep one and call its resolve method instead.
+
+@param none
+@return int the current player's score after the exchanges, in 
+		centipawns
+*********************************************************************/
+	public int resolveCaptures() {
+		return new CaptureSearch().resolve(this);
+	}
+
+/*********************************************************************
+Returns the pieces of both players attacking a square, for a given 
+set of occupied squares.
+
+@param square the square being examined
+@param all the squares treated as occupied
+@return long the squares of the attacking pieces
+*********************************************************************/
+	private long attackers(int square, long all) {
+		long diagonal = Attacks.bishop(square, all);
+		long straight = Attacks.rook(square, all);
+		long attackers = 0;
+		for (int color = 0; color < 2; color++) {
+			long queens = position.pieces(color, Position.QUEEN);
+			attackers |= (Attacks.PAWN[1 - color][square] & 
+					position.pieces(color, Position.PAWN)) |
+					(Attacks.KNIGHT[square] & 
+					position.pieces(color, Position.KNIGHT)) |
+					(Attacks.KING[square] & 
+					position.pieces(color, Position.KING)) |
+					(diagonal & (queens | 
+					position.pieces(color, Position.BISHOP))) |
+					(straight & (queens | 
+					position.pieces(color, Position.ROOK)));
+		}
+		return attackers;
+	}
+
+/*********************************************************************
+Returns the squares the piece on a square could move to if its king
+were ignored. Squares held by the same player are never included.
+
+@param from the square of the piece being examined
+@return long the set of reachable squares
+*********************************************************************/
+	private long targets(int from) {
+		
+		// the piece and its owner
+		int piece = position.pieceAt(from);
+		int color = Position.color(piece);
+		
+		// squares held by either player
+		long all = position.all();
+		
+		// value to be returned
+		long targets = 0;
+		
+		switch (Position.kind(piece)) {
+		case Position.PAWN:
+			
+			// one square forward onto an empty square
+			targets = Attacks.PAWN_STEP[color][from] & ~all;
+			
+			// two squares forward from the starting row
+			if (targets != 0) {
+				targets |= Attacks.PAWN_JUMP[color][from] & ~all;
 			}
+			
+			// diagonal captures of the opposite player's pieces
+			targets |= Attacks.PAWN[color][from] & 
+					position.occupied[1 - color];
+			break;
+		case Position.KNIGHT:
+			targets = Attacks.KNIGHT[from];
+			break;
+		case Position.BISHOP:
+			targets = Attacks.bishop(from, all);
+			break;
+		case Position.ROOK:
+			targets = Attacks.rook(from, all);
+			break;
+		case Position.QUEEN:
+			targets = Attacks.queen(from, all);
+			break;
+		case Position.KING:
+			targets = Attacks.KING[from];
+			break;
 		}
-		return valid;
+		return targets & ~position.occupied[color];
+	}
+
+/*********************************************************************
+Tries a move on the bitboards and reports whether the moving player's
+king is safe afterwards. The bitboards are restored before returning.
+
+@param from the square the piece leaves
+@param to the square the piece arrives on
+@return boolean true if the king is not attacked after the move
+*********************************************************************/
+	private boolean isLegal(int from, int to) {
+		
+		// the moving player
+		int color = Position.color(position.pieceAt(from));
+		
+		// try the move
+		int captured = position.move(from, to);
+		
+		// find the king, which may be the piece that moved
+		int king = position.kings[color];
+		boolean legal = king == Position.EMPTY || 
+				!isAttacked(king, 1 - color);
+		
+		// take the move back
+		position.move(to, from);
+		if (captured != Position.EMPTY) {
+			position.put(to, captured);
+		}
+		return legal;
+	}
+
+/*********************************************************************
+Reports whether a square is attacked by any piece of a player, by 
+looking up the knight, king, pawn and slider attacks of the square 
+itself and checking whether they land on a matching attacker.
+
+@param square the square being examined
+@param color the ordinal of the attacking player
+@return boolean true if the square is attacked
+*********************************************************************/
+	private boolean isAttacked(int square, int color) {
+		
+		// knights, kings and pawns, read from the move tables
+		if ((Attacks.KNIGHT[square] & 
+				position.pieces(color, Position.KNIGHT)) != 0 ||
+				(Attacks.KING[square] & 
+				position.pieces(color, Position.KING)) != 0 ||
+				(Attacks.PAWN[1 - color][square] & 
+				position.pieces(color, Position.PAWN)) != 0) {
+			return true;
+		}
+		
+		// sliding pieces along open lines
+		long all = position.all();
+		long queens = position.pieces(color, Position.QUEEN);
+		return (Attacks.rook(square, all) & (queens | 
+				position.pieces(color, Position.ROOK))) != 0 || 
+				(Attacks.bishop(square, all) & (queens | 
+				position.pieces(color, Position.BISHOP))) != 0;
 	}
 
 /*********************************************************************
@@ -379,6 +1410,7 @@ This method switches the players.
 *********************************************************************/
 	public void setNextPlayer() {
 		player = player.next();
+		position.hash ^= Zobrist.SIDE;
 	}
 	
 /*********************************************************************
@@ -391,6 +1423,41 @@ IChessPiece.
 *********************************************************************/
 	public void setPiece(int row, int column, IChessPiece piece) {
 		board[row][column] = piece;
+		
+		// mirror the change on the bitboards
+		int square = Position.square(row, column);
+		position.remove(square);
+		if (piece != null) {
+			position.put(square, Position.pieceOf(piece));
+		}
+	}
+	
+/*********************************************************************
+Sets a square on the board to the shared instance of a piece number,
+keeping the board and the bitboards in step.
+
+@param square the square being set
+@param piece the piece number, or Position.EMPTY to clear the square
+@return none
+*********************************************************************/
+	private void place(int square, int piece) {
+		board[square >>> 3][square & 7] = Pieces.of(piece);
+		position.remove(square);
+		if (piece != Position.EMPTY) {
+			position.put(square, piece);
+		}
+	}
+	
+/*********************************************************************
+Returns the Zobrist hash of the current position, covering every 
+piece on its square and the player to move. The hash is kept up to 
+date as pieces move, so this costs nothing.
+
+@param none
+@return long the 64-bit position hash
+*********************************************************************/
+	public long hash() {
+		return position.hash;
 	}
 	
 /*********************************************************************
@@ -2,7 +2,6 @@ package chess;
 
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
 
 import javax.swing.*;
 
@@ -27,41 +26,8 @@ public class ChessPanel extends JPanel {
 	/** ChessModel that stores the current game's IChessPieces */
 	private ChessModel model;
 	
-	/** image icon for rook, player black */
-	private ImageIcon bRook;
-	
-	/** image icon for bishop, player black */
-	private ImageIcon bBishop;
-
-	/** image icon for queen, player black */
-	private ImageIcon bQueen;
-
-	/** image icon for king, player black */
-	private ImageIcon bKing;
-
-	/** image icon for pawn, player black */
-	private ImageIcon bPawn;
-
-	/** image icon for knight, player black */
-	private ImageIcon bKnight;
-
-	/** image icon for rook, player white */
-	private ImageIcon wRook;
-
-	/** image icon for bishop, player white */
-	private ImageIcon wBishop;
-
-	/** image icon for queen, player white */
-	private ImageIcon wQueen;
-
-	/** image icon for king, player white */
-	private ImageIcon wKing;
-
-	/** image icon for pawn, player white */
-	private ImageIcon wPawn;
-
-	/** image icon for knight, player white */
-	private ImageIcon wKnight;
+	/** image icons for the pieces, indexed by player and kind */
+	private ImageIcon[][] icons;
 
 	/** button for use with reset method */
 	private JButton reset;
@@ -84,18 +50,6 @@ public class ChessPanel extends JPanel {
 	/** stores the current game message code */
 	private int messageCode;
 
-	/** turn counter to help index move history */
-	private int turn;
-
-	/** ArrayList that stores the move history of current game */
-	private ArrayList<Move> moveHistory;
-
-	/** ArrayList that stores the "from" piece history of moves */
-	private ArrayList<IChessPiece> fromHistory;
-
-	/** ArrayList that stores the "to" piece history of moves */
-	private ArrayList<IChessPiece> toHistory;
-
 	/** action listener for use with the chess panel */
 	private ButtonListener listener;
 	
@@ -112,14 +66,6 @@ Actions are directed to ButtonListener.
 *********************************************************************/
 	public ChessPanel() {
 
-		//instantiates ArrayLists to record game history
-		moveHistory = new ArrayList<Move>();
-		fromHistory = new ArrayList<IChessPiece>();
-		toHistory = new ArrayList<IChessPiece>();
-
-		// sets the turn history to 0
-		turn = 0;
-
 		// creates a new game of chess
 		model = new ChessModel();
 		
@@ -133,21 +79,16 @@ Actions are directed to ButtonListener.
 		// instantiates the listener
 		listener = new ButtonListener();
 
-		// sets the icons for the black player pieces
-		bRook = new ImageIcon("bRook.png");
-		bBishop = new ImageIcon("bBishop.png");
-		bQueen = new ImageIcon("bQueen.png");
-		bKing = new ImageIcon("bKing.png");
-		bPawn = new ImageIcon("bPawn.png");
-		bKnight = new ImageIcon("bKnight.png");
-
-		// sets the icons for the white player pieces
-		wRook = new ImageIcon("wRook.png");
-		wBishop = new ImageIcon("wBishop.png");
-		wQueen = new ImageIcon("wQueen.png");
-		wKing = new ImageIcon("wKing.png");
-		wPawn = new ImageIcon("wPawn.png");
-		wKnight = new ImageIcon("wKnight.png");
+		// loads the icons for each player's pieces
+		icons = new ImageIcon[Player.values().length]
+				[PieceKind.values().length];
+		for (Player p : Player.values()) {
+			for (PieceKind k : PieceKind.values()) {
+				icons[p.ordinal()][k.ordinal()] = new ImageIcon(
+						(p == Player.BLACK ? "b" : "w") + k.type() + 
+						".png");
+			}
+		}
 
 		// sets up the reset button, adds listener
 		reset = new JButton("Reset Game");
@@ -351,24 +292,14 @@ Private method for board selection event handling.
 				// if the move is valid
 				if (model.isValidMove(tempMove)) {
 					
-					// record it
-					recordMove(tempMove, model);
-					
-					// finalize the move
-					model.move(tempMove);
-					
-					// promote pawns appropriately
-					promotion(toRow, toColumn);
-					
-					// next player's turn
-					model.setNextPlayer();
+					/* finalize the move, promoting pawns and passing
+					 * the turn to the next player
+					 */
+					model.makeMove(tempMove);
 					
 					// set player turn message
 					setTurnMessage(model);
 					
-					// add 1 to turn count
-					turn++;
-					
 					// update board
 					displayBoard();
 					
@@ -485,8 +416,8 @@ messages.
 		}
 
 /*********************************************************************
-Undoes previous player's move, setting cell to empty and swapping 
-players. Does not undo other actions.
+Undoes previous player's move, restoring the moved and captured pieces
+and swapping players. Does not undo other actions.
 			
 @param none
 @return none		
@@ -494,68 +425,20 @@ players. Does not undo other actions.
 		private void undoMove() {
 			
 			// if it isn't the first turn of game
-			if (turn > 0) {
+			if (model.canUndo()) {
 				
-				// move the array indexes back one
-				int index = turn - 1;
-				
-				// reset the "from" piece
-				model.setPiece(moveHistory.get(index).fromRow, 
-						moveHistory.get(index).fromColumn,
-						fromHistory.get(index));
-				
-				// reset the "to" piece
-				model.setPiece(moveHistory.get(index).toRow, 
-						moveHistory.get(index).toColumn,
-						toHistory.get(index));
-				
-				// set current player to previous
-				model.setNextPlayer();
+				// take back the last move
+				model.unmakeMove();
 				
 				// set the current player message
 				setTurnMessage(model);
-				
-				// subtract one from turn counter
-				turn--;
-				
-				// remove last entry in game history
-				moveHistory.remove(index);
-				fromHistory.remove(index);
-				toHistory.remove(index);
 			}
 		}
 		
-/*********************************************************************
-This method is called whenever a player makes a move on the board.
-It records the move of and IChessPiece and creates a new 
-IChessPiece. The IChessPieces involved are added to appropriate 
-ArrayLists of IChessPieces and the move is added to an ArrayList of
-moves.   
-
-@param move the move of the IChessPiece
-@param model which game the move is taking place in
-@return none
-*********************************************************************/
-		private void recordMove(Move move, ChessModel model) {
-			
-			// copies piece in "from" location
-			IChessPiece fromPiece = model.pieceAt(
-					move.fromRow, move.fromColumn);
-			
-			// copies piece in "to" location
-			IChessPiece toPiece = model.pieceAt(
-					move.toRow, move.toColumn);
-			
-			// add move and associated pieces to history
-			moveHistory.add(tempMove);
-			fromHistory.add(fromPiece);
-			toHistory.add(toPiece);
-		}
-		
 /*********************************************************************
 This method is called when a player wins the game. It asks the user if 
-they would like to start a new game. If yes, it creates a new board,
-new array List of moves and IChessPieces.
+they would like to start a new game. If yes, it creates a new game
+model.
 
 @param none
 @return none		
@@ -583,39 +466,6 @@ new array List of moves and IChessPieces.
 				System.exit(1);
 			}
 		}
-		
-/*********************************************************************
-This method replaces a pawn with a queen when it reaches the opposite 
-side of the board.	
-
-@param row position of piece being examined
-@param col position of piece being examined
-@return none		
-*********************************************************************/	
-		private void promotion(int row, int col) {
-			
-			// if piece is a pawn
-			if (model.pieceAt(row, col).type().equals("Pawn")) {
-				
-				// if it's a white pawn in row 0
-				if (model.pieceAt(row, col).player().equals(
-						Player.WHITE) && row == 0) {
-					
-					// promote to a queen
-					Queen tempQueen = new Queen(Player.WHITE);
-					model.setPiece(row, col, tempQueen);
-				}
-				
-				// if it's a black pawn in row 7
-				else if (model.pieceAt(row, col).player().equals(
-						Player.BLACK) && row == 7) {
-					
-					// promote to a queen
-					Queen tempQueen = new Queen(Player.BLACK);
-					model.setPiece(row, col, tempQueen);
-				}
-			}
-		}
 	}
 	
 /*********************************************************************
@@ -653,10 +503,6 @@ Private helper method used to reset the board.
 
 		// reset the board data to initial state
 		model = new ChessModel();
-		moveHistory = new ArrayList<Move>();
-		fromHistory = new ArrayList<IChessPiece>();
-		toHistory = new ArrayList<IChessPiece>();
-		turn = 0;
 		setTurnMessage(model);
 
 		// display the board
@@ -686,72 +532,8 @@ ChessModel data.
 		for(int r = 0; r < model.numRows(); r++) {
 			for(int c = 0; c < model.numColumns(); c++) {
 
-				// if the piece is null, instantiate as null button
-				if (model.pieceAt(r, c) == null) {
-					board[r][c] = new JButton(null, null);
-				}
-
-				// instantiate player white's pieces
-				else if(model.pieceAt(r, c).player() == 
-						Player.WHITE) {
-
-					// find the matching icon for the piece
-					if(model.pieceAt(r, c).type().equals(
-							"Pawn")) {
-						board[r][c] = new JButton(null, wPawn);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Rook")) {
-						board[r][c] = new JButton(null, wRook);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Knight")) {
-						board[r][c] = new JButton(null, wKnight);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Bishop")) {
-						board[r][c] = new JButton(null, wBishop);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Queen")) {
-						board[r][c] = new JButton(null, wQueen);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"King")) {
-						board[r][c] = new JButton(null, wKing);
-					}
-				}
-
-				// instantiates player black's pieces
-				else if(model.pieceAt(r, c).player() == 
-						Player.BLACK) {
-
-					// find the matching icon for the piece
-					if(model.pieceAt(r, c).type().equals(
-							"Pawn")) {
-						board[r][c] = new JButton(null, bPawn);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Rook")) {
-						board[r][c] = new JButton(null, bRook);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Knight")) {
-						board[r][c] = new JButton(null, bKnight);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Bishop")) {
-						board[r][c] = new JButton(null, bBishop);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"Queen")) {
-						board[r][c] = new JButton(null, bQueen);
-					}
-					else if(model.pieceAt(r, c).type().equals(
-							"King")) {
-						board[r][c] = new JButton(null, bKing);
-					}
-				}
+				// instantiate the button with the matching icon
+				board[r][c] = new JButton(null, iconAt(r, c));
 
 				// assign a color to every other square (black)
 				if ((c % 2 == 1 && r % 2 == 0) || 
@@ -783,60 +565,26 @@ model, board, and specified piece coordinates.
 @return none	
 *********************************************************************/
 	private void setPieceIcon(int r, int c) {
+		board[r][c].setIcon(iconAt(r, c));
+	}
 
-		// if there isn't an existing piece, remove icon
-		if (model.pieceAt(r, c) == null) {
-			board[r][c].setIcon(null);
-		}
-		
-		// if there is a piece of player white, assign icon
-		else if(model.pieceAt(r, c).player() == 
-				Player.WHITE) {
+/*********************************************************************
+Private helper method that looks up the icon of the piece at the 
+specified coordinates by its player and kind.
 
-			// find the matching icon for the piece
-			if(model.pieceAt(r, c).type().equals("Pawn")) {
-				board[r][c].setIcon(wPawn);
-			}
-			else if(model.pieceAt(r, c).type().equals("Rook")) {
-				board[r][c].setIcon(wRook);
-			}
-			else if(model.pieceAt(r, c).type().equals("Knight")) {
-				board[r][c].setIcon(wKnight);
-			}
-			else if(model.pieceAt(r, c).type().equals("Bishop")) {
-				board[r][c].setIcon(wBishop);
-			}
-			else if(model.pieceAt(r, c).type().equals("Queen")) {
-				board[r][c].setIcon(wQueen);
-			}
-			else if(model.pieceAt(r, c).type().equals("King")) {
-				board[r][c].setIcon(wKing);
-			}
-		}
+@param r piece at row r
+@param c piece at column c
+@return ImageIcon the matching icon, or null for an empty square
+*********************************************************************/
+	private ImageIcon iconAt(int r, int c) {
 		
-		// if there is a piece of player black, assign icon
-		else if(model.pieceAt(r, c).player() == 
-				Player.BLACK) {
-
-			// find the matching icon for the piece
-			if(model.pieceAt(r, c).type().equals("Pawn")) {
-				board[r][c].setIcon(bPawn);
-			}
-			else if(model.pieceAt(r, c).type().equals("Rook")) {
-				board[r][c].setIcon(bRook);
-			}
-			else if(model.pieceAt(r, c).type().equals("Knight")) {
-				board[r][c].setIcon(bKnight);
-			}
-			else if(model.pieceAt(r, c).type().equals("Bishop")) {
-				board[r][c].setIcon(bBishop);
-			}
-			else if(model.pieceAt(r, c).type().equals("Queen")) {
-				board[r][c].setIcon(bQueen);
-			}
-			else if(model.pieceAt(r, c).type().equals("King")) {
-				board[r][c].setIcon(bKing);
-			}
+		// the piece being drawn
+		IChessPiece piece = model.pieceAt(r, c);
+		
+		// empty squares have no icon
+		if (piece == null) {
+			return null;
 		}
+		return icons[piece.player().ordinal()][piece.kind().ordinal()];
 	}
-}
\ No newline at end of file
+}
@@ -12,7 +12,7 @@ set.
 public abstract class ChessPiece implements IChessPiece {
 
 	/** who owns the chess piece */
-	private Player owner;
+	private final Player owner;
 	
 /*********************************************************************
 Constructor method for ChessPiece object. Requires a player of type
@@ -32,6 +32,13 @@ Player to be associated with the ChessPiece.
  */
 	public abstract String type();
 
+/**
+ * Returns the kind of the piece.
+ *
+ * @return PieceKind the kind of the piece
+ */
+	public abstract PieceKind kind();
+
 /*********************************************************************
 Method to return who owns a particular ChessPiece.
 
@@ -81,4 +88,28 @@ and must not be null.
 		}
 		return valid;
 	}
+
+/*********************************************************************
+Collects the occupied squares of a board among a set of squares, for
+use with the precomputed attack tables.
+
+@param board the board on which the move is being made
+@param squares the set of squares to examine
+@return long the subset of squares holding a piece
+*********************************************************************/
+	protected static long occupancy(IChessPiece[][] board, 
+			long squares) {
+		
+		// value to be returned
+		long occupied = 0;
+		
+		// iterate through the squares being examined
+		for (long rest = squares; rest != 0; rest &= rest - 1) {
+			int square = Long.numberOfTrailingZeros(rest);
+			if (board[square >>> 3][square & 7] != null) {
+				occupied |= 1L << square;
+			}
+		}
+		return occupied;
+	}
 }
@@ -0,0 +1,453 @@
+package chess;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/*********************************************************************
+Weights used by ChessModel.evaluate. Each kind of piece has a value
+and a piece-square table for the middlegame and for the endgame, and
+counts towards the game phase, which blends the two.
+Tables are written from white's side: entry {@code row * 8 + column}
+is the bonus for a white piece on that square, row 0 being the row
+white's pawns move towards. Black's pieces use the same tables with
+the rows mirrored.
+Weights are read from a properties file, so they can be tuned
+without recompiling. For each kind ("pawn", "knight", "bishop",
+"rook", "queen", "king") the file may give:
+	kind.value, the middlegame and endgame values,
+	kind.mg, the 64 entries of the middlegame table,
+	kind.eg, the 64 entries of the endgame table,
+	kind.phase, how much one piece counts towards the phase.
+Pawn structure (see PawnCache) is weighted by:
+	pawn.doubled, pawn.isolated and pawn.backward, the middlegame 
+		and endgame penalties for each such pawn,
+	pawn.passed.mg and pawn.passed.eg, the bonus for a passed pawn 
+		on each row, counted from the player's own first row.
+Numbers are separated by spaces or commas; anything left out keeps
+its DEFAULT. Weights never change once created, so one set can be
+shared by any number of models.
+
+@version March 2013
+*********************************************************************/
+public final class EvalWeights {
+
+	/** middlegame values of each kind, from PeSTO */
+	private static final int[] MG_VALUES =
+			{82, 337, 365, 477, 1025, 0};
+
+	/** endgame values of each kind, from PeSTO */
+	private static final int[] EG_VALUES =
+			{94, 281, 297, 512, 936, 0};
+
+	/** phase counted for each kind */
+	private static final int[] PHASES = {0, 1, 1, 2, 4, 0};
+
+	/** middlegame piece-square tables of each kind, from PeSTO */
+	private static final int[][] MG_TABLES = {
+		{
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			 98, 134,  61,  95,  68, 126,  34, -11,
+			 -6,   7,  26,  31,  65,  56,  25, -20,
+			-14,  13,   6,  21,  23,  12,  17, -23,
+			-27,  -2,  -5,  12,  17,   6,  10, -25,
+			-26,  -4,  -4, -10,   3,   3,  33, -12,
+			-35,  -1, -20, -23, -15,  24,  38, -22,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+		}, {
+			-167, -89, -34, -49,  61, -97, -15, -107,
+			 -73, -41,  72,  36,  23,  62,   7,  -17,
+			 -47,  60,  37,  65,  84, 129,  73,   44,
+			  -9,  17,  19,  53,  37,  69,  18,   22,
+			 -13,   4,  16,  13,  28,  19,  21,   -8,
+			 -23,  -9,  12,  10,  19,  17,  25,  -16,
+			 -29, -53, -12,  -3,  -1,  18, -14,  -19,
+			-105, -21, -58, -33, -17, -28, -19,  -23,
+		}, {
+			-29,   4, -82, -37, -25, -42,   7,  -8,
+			-26,  16, -18, -13,  30,  59,  18, -47,
+			-16,  37,  43,  40,  35,  50,  37,  -2,
+			 -4,   5,  19,  50,  37,  37,   7,  -2,
+			 -6,  13,  13,  26,  34,  12,  10,   4,
+			  0,  15,  15,  15,  14,  27,  18,  10,
+			  4,  15,  16,   0,   7,  21,  33,   1,
+			-33,  -3, -14, -21, -13, -12, -39, -21,
+		}, {
+			 32,  42,  32,  51,  63,   9,  31,  43,
+			 27,  32,  58,  62,  80,  67,  26,  44,
+			 -5,  19,  26,  36,  17,  45,  61,  16,
+			-24, -11,   7,  26,  24,  35,  -8, -20,
+			-36, -26, -12,  -1,   9,  -7,   6, -23,
+			-45, -25, -16, -17,   3,   0,  -5, -33,
+			-44, -16, -20,  -9,  -1,  11,  -6, -71,
+			-19, -13,   1,  17,  16,   7, -37, -26,
+		}, {
+			-28,   0,  29,  12,  59,  44,  43,  45,
+			-24, -39,  -5,   1, -16,  57,  28,  54,
+			-13, -17,   7,   8,  29,  56,  47,  57,
+			-27, -27, -16, -16,  -1,  17,  -2,   1,
+			 -9, -26,  -9, -10,  -2,  -4,   3,  -3,
+			-14,   2, -11,  -2,  -5,   2,  14,   5,
+			-35,  -8,  11,   2,   8,  15,  -3,   1,
+			 -1, -18,  -9,  10, -15, -25, -31, -50,
+		}, {
+			-65,  23,  16, -15, -56, -34,   2,  13,
+			 29,  -1, -20,  -7,  -8,  -4, -38, -29,
+			 -9,  24,   2, -16, -20,   6,  22, -22,
+			-17, -20, -12, -27, -30, -25, -14, -36,
+			-49,  -1, -27, -39, -46, -44, -33, -51,
+			-14, -14, -22, -46, -44, -30, -15, -27,
+			  1,   7,  -8, -64, -43, -16,   9,   8,
+			-15,  36,  12, -54,   8, -28,  24,  14,
+		},
+	};
+
+	/** endgame piece-square tables of each kind, from PeSTO */
+	private static final int[][] EG_TABLES = {
+		{
+			  0,   0,   0,   0,   0,   0,   0,   0,
+			178, 173, 158, 134, 147, 132, 165, 187,
+			 94, 100,  85,  67,  56,  53,  82,  84,
+			 32,  24,  13,   5,  -2,   4,  17,  17,
+			 13,   9,  -3,  -7,  -7,  -8,   3,  -1,
+			  4,   7,  -6,   1,   0,  -5,  -1,  -8,
+			 13,   8,   8,  10,  13,   0,   2,  -7,
+			  0,   0,   0,   0,   0,   0,   0,   0,
+		}, {
+			-58, -38, -13, -28, -31, -27, -63, -99,
+			-25,  -8, -25,  -2,  -9, -25, -24, -52,
+			-24, -20,  10,   9,  -1,  -9, -19, -41,
+			-17,   3,  22,  22,  22,  11,   8, -18,
+			-18,  -6,  16,  25,  16,  17,   4, -18,
+			-23,  -3,  -1,  15,  10,  -3, -20, -22,
+			-42, -20, -10,  -5,  -2, -20, -23, -44,
+			-29, -51, -23, -15, -22, -18, -50, -64,
+		}, {
+			-14, -21, -11,  -8,  -7,  -9, -17, -24,
+			 -8,  -4,   7, -12,  -3, -13,  -4, -14,
+			  2,  -8,   0,  -1,  -2,   6,   0,   4,
+			 -3,   9,  12,   9,  14,  10,   3,   2,
+			 -6,   3,  13,  19,   7,  10,  -3,  -9,
+			-12,  -3,   8,  10,  13,   3,  -7, -15,
+			-14, -18,  -7,  -1,   4,  -9, -15, -27,
+			-23,  -9, -23,  -5,  -9, -16,  -5, -17,
+		}, {
+			 13,  10,  18,  15,  12,  12,   8,   5,
+			 11,  13,  13,  11,  -3,   3,   8,   3,
+			  7,   7,   7,   5,   4,  -3,  -5,  -3,
+			  4,   3,  13,   1,   2,   1,  -1,   2,
+			  3,   5,   8,   4,  -5,  -6,  -8, -11,
+			 -4,   0,  -5,  -1,  -7, -12,  -8, -16,
+			 -6,  -6,   0,   2,  -9,  -9, -11,  -3,
+			 -9,   2,   3,  -1,  -5, -13,   4, -20,
+		}, {
+			 -9,  22,  22,  27,  27,  19,  10,  20,
+			-17,  20,  32,  41,  58,  25,  30,   0,
+			-20,   6,   9,  49,  47,  35,  19,   9,
+			  3,  22,  24,  45,  57,  40,  57,  36,
+			-18,  28,  19,  47,  31,  34,  39,  23,
+			-16, -27,  15,   6,   9,  17,  10,   5,
+			-22, -23, -30, -16, -16, -23, -36, -32,
+			-33, -28, -22, -43,  -5, -32, -20, -41,
+		}, {
+			-74, -35, -18, -18, -11,  15,   4, -17,
+			-12,  17,  14,  17,  17,  38,  23,  11,
+			 10,  17,  23,  15,  20,  45,  44,  13,
+			 -8,  22,  24,  27,  26,  33,  26,   3,
+			-18,  -4,  21,  24,  27,  23,   9, -11,
+			-19,  -3,  11,  21,  23,  16,   7,  -9,
+			-27, -11,   4,  13,  14,   4,  -5, -17,
+			-53, -34, -21, -11, -28, -14, -24, -43,
+		},
+	};
+
+	/** index in the structure weights of the doubled pawn penalty */
+	static final int DOUBLED = 0;
+
+	/** index in the structure weights of the isolated pawn penalty */
+	static final int ISOLATED = 2;
+
+	/** index in the structure weights of the backward pawn penalty */
+	static final int BACKWARD = 4;
+
+	/** names of the structure weights, by index */
+	private static final String[] STRUCTURE_NAMES =
+			{"doubled", "isolated", "backward"};
+
+	/** middlegame and endgame penalties for doubled, isolated and 
+	 * backward pawns
+	 */
+	private static final int[] STRUCTURE = {-10, -20, -12, -18, -8, -10};
+
+	/** middlegame bonus for a passed pawn on each row */
+	private static final int[] PASSED_MG = {0, 0, 5, 10, 20, 35, 60, 0};
+
+	/** endgame bonus for a passed pawn on each row */
+	private static final int[] PASSED_EG =
+			{0, 10, 15, 25, 45, 75, 120, 0};
+
+	/** the weights used unless others are set */
+	public static final EvalWeights DEFAULT = new EvalWeights(
+			MG_VALUES, EG_VALUES, MG_TABLES, EG_TABLES, PHASES, 
+			STRUCTURE, PASSED_MG, PASSED_EG);
+
+	/** middlegame values of each kind, which are also the values 
+	 * ChessModel counts material and exchanges in
+	 */
+	final int[] mgValues;
+
+	/** endgame values of each kind */
+	private final int[] egValues;
+
+	/** middlegame tables of each kind, from white's side */
+	private final int[][] mgTables;
+
+	/** endgame tables of each kind, from white's side */
+	private final int[][] egTables;
+
+	/** phase counted for each kind */
+	final int[] phases;
+
+	/** phase of the starting position, which evaluate treats as the
+	 * pure middlegame; never less than 1
+	 */
+	final int maxPhase;
+
+	/** pawn structure penalties, indexed by DOUBLED, ISOLATED or 
+	 * BACKWARD plus 0 for the middlegame or 1 for the endgame
+	 */
+	final int[] structure;
+
+	/** middlegame bonus for a passed pawn on each row */
+	final int[] passedMg;
+
+	/** endgame bonus for a passed pawn on each row */
+	final int[] passedEg;
+
+	/** middlegame value plus table entry, indexed by piece number
+	 * (see Position) and square, with black's rows mirrored
+	 */
+	final int[][] mg = new int[2 * Position.KINDS][64];
+
+	/** endgame value plus table entry, indexed like mg */
+	final int[][] eg = new int[2 * Position.KINDS][64];
+
+/*********************************************************************
+Constructor method, creates weights from values and tables indexed by
+kind number, and combines them for each piece and square.
+
+@param mgValues middlegame values of each kind
+@param egValues endgame values of each kind
+@param mgTables middlegame tables of each kind
+@param egTables endgame tables of each kind
+@param phases phase counted for each kind
+@param structure the pawn structure penalties
+@param passedMg middlegame passed pawn bonuses
+@param passedEg endgame passed pawn bonuses
+@return none
+*********************************************************************/
+	private EvalWeights(int[] mgValues, int[] egValues,
+			int[][] mgTables, int[][] egTables, int[] phases, 
+			int[] structure, int[] passedMg, int[] passedEg) {
+		this.mgValues = mgValues;
+		this.egValues = egValues;
+		this.mgTables = mgTables;
+		this.egTables = egTables;
+		this.phases = phases;
+		this.structure = structure;
+		this.passedMg = passedMg;
+		this.passedEg = passedEg;
+		
+		// the phase of the pieces each player starts with
+		int start = 8 * phases[Position.PAWN] + 
+				2 * phases[Position.KNIGHT] + 
+				2 * phases[Position.BISHOP] + 
+				2 * phases[Position.ROOK] + phases[Position.QUEEN] + 
+				phases[Position.KING];
+		maxPhase = Math.max(2 * start, 1);
+		
+		for (int color = 0; color < 2; color++) {
+			for (int kind = 0; kind < Position.KINDS; kind++) {
+				int piece = Position.piece(color, kind);
+				for (int square = 0; square < 64; square++) {
+					
+					// black's pieces see the board upside down
+					int entry = color == Player.WHITE.ordinal() ?
+							square : square ^ 56;
+					mg[piece][square] = mgValues[kind] +
+							mgTables[kind][entry];
+					eg[piece][square] = egValues[kind] +
+							egTables[kind][entry];
+				}
+			}
+		}
+	}
+
+/*********************************************************************
+Reads weights from a properties file, as described above.
+
+@param file the file to read
+@return EvalWeights the weights read
+@throws IOException if the file cannot be read
+@throws IllegalArgumentException if a weight is not a number or a
+		list has the wrong length
+*********************************************************************/
+	public static EvalWeights load(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			Properties properties = new Properties();
+			properties.load(in);
+			return fromProperties(properties);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+/*********************************************************************
+Builds weights from properties, as described above, taking missing
+weights from DEFAULT.
+
+@param properties the weights by name
+@return EvalWeights the weights
+@throws IllegalArgumentException if a weight is not a number or a
+		list has the wrong length
+*********************************************************************/
+	public static EvalWeights fromProperties(Properties properties) {
+		int[] mgValues = DEFAULT.mgValues.clone();
+		int[] egValues = DEFAULT.egValues.clone();
+		int[][] mgTables = new int[Position.KINDS][];
+		int[][] egTables = new int[Position.KINDS][];
+		int[] phases = DEFAULT.phases.clone();
+		int[] structure = DEFAULT.structure.clone();
+		
+		for (PieceKind kind : PieceKind.values()) {
+			int k = kind.ordinal();
+			String name = kind.type().toLowerCase();
+			
+			int[] values = numbers(properties, name + ".value", 2);
+			if (values != null) {
+				mgValues[k] = values[0];
+				egValues[k] = values[1];
+			}
+			mgTables[k] = numbers(properties, name + ".mg", 64);
+			if (mgTables[k] == null) {
+				mgTables[k] = DEFAULT.mgTables[k];
+			}
+			egTables[k] = numbers(properties, name + ".eg", 64);
+			if (egTables[k] == null) {
+				egTables[k] = DEFAULT.egTables[k];
+			}
+			int[] phase = numbers(properties, name + ".phase", 1);
+			if (phase != null) {
+				phases[k] = phase[0];
+			}
+		}
+		
+		// pawn structure
+		for (int i = 0; i < STRUCTURE_NAMES.length; i++) {
+			int[] penalty = numbers(properties, "pawn." + 
+					STRUCTURE_NAMES[i], 2);
+			if (penalty != null) {
+				structure[2 * i] = penalty[0];
+				structure[2 * i + 1] = penalty[1];
+			}
+		}
+		int[] passedMg = numbers(properties, "pawn.passed.mg", 8);
+		int[] passedEg = numbers(properties, "pawn.passed.eg", 8);
+		return new EvalWeights(mgValues, egValues, mgTables, egTables,
+				phases, structure, passedMg != null ? passedMg : 
+				DEFAULT.passedMg, passedEg != null ? passedEg : 
+				DEFAULT.passedEg);
+	}
+
+/*********************************************************************
+Writes these weights to a properties file that load can read back,
+as a starting point for tuning.
+
+@param file the file to write
+@return none
+@throws IOException if the file cannot be written
+*********************************************************************/
+	public void save(File file) throws IOException {
+		Properties properties = new Properties();
+		for (PieceKind kind : PieceKind.values()) {
+			int k = kind.ordinal();
+			String name = kind.type().toLowerCase();
+			properties.setProperty(name + ".value", mgValues[k] + " " +
+					egValues[k]);
+			properties.setProperty(name + ".mg", join(mgTables[k]));
+			properties.setProperty(name + ".eg", join(egTables[k]));
+			properties.setProperty(name + ".phase",
+					String.valueOf(phases[k]));
+		}
+		for (int i = 0; i < STRUCTURE_NAMES.length; i++) {
+			properties.setProperty("pawn." + STRUCTURE_NAMES[i], 
+					structure[2 * i] + " " + structure[2 * i + 1]);
+		}
+		properties.setProperty("pawn.passed.mg", join(passedMg));
+		properties.setProperty("pawn.passed.eg", join(passedEg));
+		OutputStream out = new FileOutputStream(file);
+		try {
+			properties.store(out, "Evaluation weights");
+		}
+		finally {
+			out.close();
+		}
+	}
+
+/*********************************************************************
+Reads a list of numbers from a property.
+
+@param properties the weights by name
+@param key the name of the property
+@param count the number of numbers the property must hold
+@return int[] the numbers, or null if the property is missing
+@throws IllegalArgumentException if a number is malformed or the
+		count is wrong
+*********************************************************************/
+	private static int[] numbers(Properties properties, String key,
+			int count) {
+		String text = properties.getProperty(key);
+		if (text == null) {
+			return null;
+		}
+		String[] words = text.trim().split("[\\s,]+");
+		if (words.length != count) {
+			throw new IllegalArgumentException("Expected " + count +
+					" numbers for " + key + " but found " + words.length);
+		}
+		int[] numbers = new int[count];
+		for (int i = 0; i < count; i++) {
+			try {
+				numbers[i] = Integer.parseInt(words[i]);
+			}
+			catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad number for " +
+						key + ": " + words[i]);
+			}
+		}
+		return numbers;
+	}
+
+/*********************************************************************
+Writes a table as eight rows of numbers.
+
+@param table the 64 entries of a table
+@return String the entries, separated by spaces
+*********************************************************************/
+	private static String join(int[] table) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < table.length; i++) {
+			if (i > 0) {
+				text.append(i % 8 == 0 ? ", " : " ");
+			}
+			text.append(table[i]);
+		}
+		return text.toString();
+	}
+}
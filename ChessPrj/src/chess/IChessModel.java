@@ -1,4 +1,7 @@
 package chess;
+
+import java.util.List;
+
 /*********************************************************************
 ChessModel interface.
 
@@ -34,6 +37,97 @@ public interface IChessModel {
 	 */
 	void move(Move move);
 
+	/**
+	 * Makes {@code move} and passes the turn to the other player, recording it so that it can be taken back with
+	 * {@link #unmakeMove()}. The oldest recorded move is forgotten when the undo stack is full.
+	 *
+	 * @param move a {@link W13project3.Move} object describing the move to be made.
+	 */
+	void makeMove(Move move);
+
+	/**
+	 * Makes a packed move (see {@link Moves}) and passes the turn to the other player, recording it so that it can
+	 * be taken back with {@link #unmakeMove()}.
+	 *
+	 * @param move the packed move to be made.
+	 */
+	void makeMove(int move);
+
+	/**
+	 * Takes back the most recent move made with {@link #makeMove(Move)}.
+	 *
+	 * @throws IllegalStateException if there is no move to undo.
+	 */
+	void unmakeMove();
+
+	/**
+	 * Adds every legal move of the current player to {@code moves}.
+	 *
+	 * @param moves the list the legal moves are added to.
+	 */
+	void generateLegalMoves(List<Move> moves);
+
+	/**
+	 * Adds every legal move of the current player to {@code moves} as packed moves (see {@link Moves}), without
+	 * allocating.
+	 *
+	 * @param moves the buffer the legal moves are added to.
+	 */
+	void generateLegalMoves(MoveList moves);
+
+	/**
+	 * Adds the legal moves of the current player that arrive on square {@code to} to {@code moves} as packed moves.
+	 *
+	 * @param moves the buffer the legal moves are added to.
+	 * @param to the square the moves arrive on, numbered {@code row * 8 + column}.
+	 */
+	void generateLegalMoves(MoveList moves, int to);
+
+	/**
+	 * Adds every legal move of the current player to {@code moves} as packed moves, ordered by {@code order} so
+	 * that the likeliest best moves are taken first with {@link MoveOrder#next(MoveList, int, int)}.
+	 *
+	 * @param moves the buffer the legal moves are added to.
+	 * @param order the move order, which learns from the cutoffs reported to it.
+	 * @param ply the distance of the position from the root of the search.
+	 */
+	void generateOrderedMoves(MoveList moves, MoveOrder order, int ply);
+
+	/**
+	 * Adds every legal move of the current player to {@code moves} as packed moves, ordered by {@code order} with
+	 * {@code hashMove} first.
+	 *
+	 * @param moves the buffer the legal moves are added to.
+	 * @param order the move order, which learns from the cutoffs reported to it.
+	 * @param ply the distance of the position from the root of the search.
+	 * @param hashMove the packed move to try first, or {@link Moves#NONE}.
+	 */
+	void generateOrderedMoves(MoveList moves, MoveOrder order, int ply, int hashMove);
+
+	/**
+	 * Adds the legal captures and promotions of the current player to {@code moves} as packed moves.
+	 *
+	 * @param moves the buffer the moves are added to.
+	 */
+	void generateCaptures(MoveList moves);
+
+	/**
+	 * Returns the material gained by a capture once every recapture on the same square has been played out,
+	 * without changing the board.
+	 *
+	 * @param move the packed capture to be examined.
+	 * @return the material gained by the moving player, negative if the capture loses material.
+	 */
+	int see(int move);
+
+	/**
+	 * Returns the current player's score once the legal captures in the position have been played out, without
+	 * changing the board.
+	 *
+	 * @return the score in centipawns.
+	 */
+	int resolveCaptures();
+
 	/**
 	 * Report whether the current player p is in check.
 	 * @param  p {@link W13project3.Move} the Player being checked
@@ -41,6 +135,44 @@ public interface IChessModel {
 	 */
 	boolean inCheck(Player p);
 
+	/**
+	 * Return the value of player p's pieces in centipawns.
+	 *
+	 * @param p the Player being examined
+	 * @return the total value of the player's pieces.
+	 */
+	int material(Player p);
+
+	/**
+	 * Return the static evaluation of the current position for the current player, from piece values and
+	 * piece-square tables blended by game phase.
+	 *
+	 * @return the evaluation in centipawns.
+	 */
+	int evaluate();
+
+	/**
+	 * Sets the weights used by {@link #evaluate()}.
+	 *
+	 * @param weights the new weights.
+	 */
+	void setWeights(EvalWeights weights);
+
+	/**
+	 * Replaces the position with one in Forsyth-Edwards Notation.
+	 *
+	 * @param fen the position in FEN.
+	 * @throws IllegalArgumentException if {@code fen} is malformed.
+	 */
+	void setFen(CharSequence fen);
+
+	/**
+	 * Return the position in Forsyth-Edwards Notation.
+	 *
+	 * @return the position in FEN.
+	 */
+	String toFen();
+
 	/**
 	 * Return the current player.
 	 *
@@ -48,4 +180,12 @@ public interface IChessModel {
 	 */
 	Player currentPlayer();
 
+	/**
+	 * Return a 64-bit Zobrist hash of the current position, covering the pieces and the player to move.  Equal
+	 * positions have equal hashes.
+	 *
+	 * @return the hash of the current position
+	 */
+	long hash();
+
 }
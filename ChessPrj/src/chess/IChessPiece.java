@@ -23,6 +23,14 @@ public interface IChessPiece {
 	 */
 	String type();
 
+	/**
+	 * Return the kind of this piece.  Game logic dispatches on the kind rather than comparing {@link #type()}
+	 * names.
+	 *
+	 * @return the kind of this piece
+	 */
+	PieceKind kind();
+
 	/**
 	 * Returns whether the piece at location {@code [move.fromRow, move.fromColumn]} is allowed to move to location
 	 * {@code [move.fromRow, move.fromColumn]}.
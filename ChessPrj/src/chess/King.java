@@ -32,9 +32,21 @@ Returns the designated name of this piece.
 	public String type() {
 		return "King";
 	}
+
+/*********************************************************************
+Returns the kind of this piece.
+
+@param none
+@return PieceKind the kind of the piece
+*********************************************************************/
+	public PieceKind kind() {
+		return PieceKind.KING;
+	}
 	
 /*********************************************************************
 Move validity test for King. King can move one space in any direction.
+The destination is looked up in the precomputed king steps of the 
+starting square.
 
 @param move the move being examined
 @param board the board on which the move is being made
@@ -48,15 +60,10 @@ Move validity test for King. King can move one space in any direction.
 		// checks to see that the general move set is valid
 		if (super.isValidMove(move, board)) {
 			
-			// if the piece is moved one space in any direction
-			if ((Math.abs(move.toRow - move.fromRow) == 1 &&
-					move.toColumn == move.fromColumn) ||
-					(Math.abs(move.toColumn - move.fromColumn) == 
-					1 && move.toRow == move.fromRow) ||
-					(Math.abs(move.toRow - move.fromRow) == 1 &&
-					Math.abs(move.toColumn - move.fromColumn) == 1)) {
-				valid = true;
-			}
+			// checks the destination against the king's steps
+			valid = (Attacks.KING[Position.square(move.fromRow, 
+					move.fromColumn)] & (1L << Position.square(
+					move.toRow, move.toColumn))) != 0;
 		}
 		return valid;
 	}
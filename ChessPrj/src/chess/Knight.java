@@ -33,10 +33,21 @@ Returns the designated name of this piece.
 		return "Knight";
 	}
 
+/*********************************************************************
+Returns the kind of this piece.
+
+@param none
+@return PieceKind the kind of the piece
+*********************************************************************/
+	public PieceKind kind() {
+		return PieceKind.KNIGHT;
+	}
+
 /*********************************************************************
 Move validity test for Knight. Knight can move two spaces vertically
 or horizontally, and one space to either side after that (in a "L"
-shape). Does not require a clear path.
+shape). Does not require a clear path. The destination is looked up 
+in the precomputed knight jumps of the starting square.
 
 @param move the move being examined
 @param board the board on which the move is being made
@@ -50,17 +61,10 @@ shape). Does not require a clear path.
 		// checks to see that the general move set is valid 
 		if(super.isValidMove(move, board)) {
 
-			// checks if knight is moving vertically (L-shape)
-			if((Math.abs(move.toRow - move.fromRow) == 2) && 
-				(Math.abs(move.toColumn - move.fromColumn) == 1)) {
-					valid = true;
-			}
-
-			// checks if knight is moving horizontally (L-shape)
-			if((Math.abs(move.toRow - move.fromRow) == 1) && 
-				(Math.abs(move.toColumn - move.fromColumn) == 2)) {
-					valid = true;
-			}
+			// checks the destination against the knight's jumps
+			valid = (Attacks.KNIGHT[Position.square(move.fromRow, 
+					move.fromColumn)] & (1L << Position.square(
+					move.toRow, move.toColumn))) != 0;
 		}
 		return valid;
 	}
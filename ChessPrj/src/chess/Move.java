@@ -4,6 +4,8 @@ package chess;
 Defines the Move object. Consists of four integers: a "from" 
 row and column value, and a "to" row and column value. These are
 appropriately paired into coordinates that define a move.
+Move is a thin adapter for the GUI around the packed int moves of
+Moves, which the game logic uses internally.
 
 @author Dale Burke
 @author Gregorio De Leon
@@ -52,4 +54,28 @@ values.
 		this.toRow = toRow;
 		this.toColumn = toColumn;
 	}
+
+/*********************************************************************
+Move constructor method. Creates a Move object from a packed move.
+
+@param move the packed move, as described in Moves
+@return none
+*********************************************************************/
+	public Move(int move) 
+	{
+		this(Moves.from(move) >>> 3, Moves.from(move) & 7, 
+				Moves.to(move) >>> 3, Moves.to(move) & 7);
+	}
+
+/*********************************************************************
+Packs this move into an int, as described in Moves.
+
+@param none
+@return int the packed move
+*********************************************************************/
+	public int pack() 
+	{
+		return Moves.encode(Position.square(fromRow, fromColumn), 
+				Position.square(toRow, toColumn));
+	}
 }
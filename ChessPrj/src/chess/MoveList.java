@@ -0,0 +1,71 @@
+package chess;
+
+/*********************************************************************
+Reusable buffer of packed moves (see Moves). The move generator fills
+a MoveList instead of allocating Move objects, and a caller can keep 
+one list per search ply and clear it between uses.
+
+@version March 2013
+*********************************************************************/
+public final class MoveList {
+
+	/** more moves than any chess position allows */
+	public static final int CAPACITY = 256;
+
+	/** the packed moves */
+	private final int[] moves = new int[CAPACITY];
+
+	/** number of moves in the list */
+	private int size;
+
+/*********************************************************************
+Adds a packed move to the end of the list.
+
+@param move the packed move
+@return none
+*********************************************************************/
+	public void add(int move) {
+		moves[size++] = move;
+	}
+
+/*********************************************************************
+Returns the packed move at an index.
+
+@param index the index of the move
+@return int the packed move
+*********************************************************************/
+	public int get(int index) {
+		return moves[index];
+	}
+
+/*********************************************************************
+Replaces the packed move at an index.
+
+@param index the index of the move
+@param move the packed move
+@return none
+*********************************************************************/
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+/*********************************************************************
+Returns the number of moves in the list.
+
+@param none
+@return int the number of moves
+*********************************************************************/
+	public int size() {
+		return size;
+	}
+
+/*********************************************************************
+Removes every move from the list.
+
+@param none
+@return none
+*********************************************************************/
+	public void clear() {
+		size = 0;
+	}
+}
@@ -0,0 +1,209 @@
+package chess;
+
+import java.util.Arrays;
+
+/*********************************************************************
+Puts the moves of a MoveList into the order most likely to be best,
+so that a tree search reaches good moves, and its cutoffs, early.
+Moves are tried in this order:
+	the move remembered for the position (from a hash table),
+	captures and promotions, most valuable victim first and least
+		valuable attacker first among equal victims (MVV-LVA),
+	the two killer moves of the ply, quiet moves that caused a cutoff
+		at the same ply elsewhere in the tree,
+	the counter move, the quiet move that last refuted the
+		opponent's previous move,
+	the other quiet moves, by how often they caused cutoffs before
+		(the history table).
+The tables learn from each call to cutoff and are kept in
+preallocated primitive arrays, so ordering never allocates. A
+MoveOrder is used by one thread at a time.
+
+@version March 2013
+*********************************************************************/
+public final class MoveOrder {
+
+	/** sort key of the remembered move */
+	private static final int HASH_MOVE = 1 << 30;
+
+	/** base sort key of captures and promotions */
+	private static final int CAPTURE = 1 << 29;
+
+	/** sort key of the first killer move; the second is one less */
+	private static final int KILLER = 1 << 28;
+
+	/** sort key of the counter move */
+	private static final int COUNTER = KILLER - 2;
+
+	/** history scores are halved when one reaches this value */
+	private static final int HISTORY_LIMIT = 1 << 20;
+
+	/** one sort key for each move of each ply */
+	private final int[][] keys;
+
+	/** two killer moves for each ply */
+	private final int[] killers;
+
+	/** cutoffs caused by each move, indexed by player, "from" and
+	 * "to" square
+	 */
+	private final int[] history = new int[2 * 64 * 64];
+
+	/** move that refuted each move, indexed by the piece number and
+	 * "to" square of the move refuted
+	 */
+	private final int[] counters = new int[2 * Position.KINDS * 64];
+
+/*********************************************************************
+Constructor method, creates empty tables for a number of plies.
+
+@param maxPly the number of plies moves will be ordered at
+@return none
+*********************************************************************/
+	public MoveOrder(int maxPly) {
+		keys = new int[maxPly][MoveList.CAPACITY];
+		killers = new int[maxPly * 2];
+	}
+
+/*********************************************************************
+Sorts the moves of a position into the order they should be tried.
+Moves are sorted by selection as they are taken with next, so moves
+after a cutoff are never sorted at all.
+
+@param model the position the moves belong to
+@param moves the legal moves of the position
+@param ply the distance of the position from the root
+@param hashMove the move remembered for the position, or Moves.NONE
+@return none
+*********************************************************************/
+	public void order(ChessModel model, MoveList moves, int ply,
+			int hashMove) {
+		int[] key = keys[ply];
+		int color = model.currentPlayer().ordinal();
+		
+		// the move that refuted the opponent's last move, if any
+		int last = model.lastMove();
+		int counter = last == Moves.NONE ? Moves.NONE :
+				counters[model.pieceOn(Moves.to(last)) * 64 +
+				Moves.to(last)];
+		
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			int from = Moves.from(move);
+			int to = Moves.to(move);
+			if (move == hashMove) {
+				key[i] = HASH_MOVE;
+			}
+			else if (Moves.isCapture(move) ||
+					Moves.promotion(move) != 0) {
+				
+				/* most valuable victim first, then least valuable
+				 * attacker; a promotion counts as capturing the piece
+				 * promoted to
+				 */
+				int victim = Moves.isCapture(move) ?
+						Position.kind(model.pieceOn(to)) + 1 : 0;
+				key[i] = CAPTURE + (victim + Moves.promotion(move)) * 8 -
+						Position.kind(model.pieceOn(from));
+			}
+			else if (move == killers[ply * 2]) {
+				key[i] = KILLER;
+			}
+			else if (move == killers[ply * 2 + 1]) {
+				key[i] = KILLER - 1;
+			}
+			else if (move == counter) {
+				key[i] = COUNTER;
+			}
+			else {
+				key[i] = history[(color * 64 + from) * 64 + to];
+			}
+		}
+	}
+
+/*********************************************************************
+Returns the move that should be tried at an index, after moving it
+there from wherever it stood at or after the index. Moves must be
+taken in order, from index 0 upwards, after calling order.
+
+@param moves the moves passed to order
+@param ply the ply passed to order
+@param index the number of moves already taken
+@return int the packed move to try next
+*********************************************************************/
+	public int next(MoveList moves, int ply, int index) {
+		int[] key = keys[ply];
+		
+		// find the best of the moves not yet taken
+		int best = index;
+		for (int i = index + 1; i < moves.size(); i++) {
+			if (key[i] > key[best]) {
+				best = i;
+			}
+		}
+		
+		// swap it into place
+		int move = moves.get(best);
+		if (best != index) {
+			moves.set(best, moves.get(index));
+			moves.set(index, move);
+			int swap = key[best];
+			key[best] = key[index];
+			key[index] = swap;
+		}
+		return move;
+	}
+
+/*********************************************************************
+Records that a move caused a cutoff, so that it is tried sooner in
+similar positions. Captures and promotions are already tried early,
+so only quiet moves are recorded.
+
+@param model the position the move was made from, with the move
+		taken back
+@param move the packed move that caused the cutoff
+@param ply the distance of the position from the root
+@param depth the remaining depth the move was searched to
+@return none
+*********************************************************************/
+	public void cutoff(ChessModel model, int move, int ply, int depth) {
+		if (Moves.isCapture(move) || Moves.promotion(move) != 0) {
+			return;
+		}
+		
+		// the newest killer goes first
+		if (killers[ply * 2] != move) {
+			killers[ply * 2 + 1] = killers[ply * 2];
+			killers[ply * 2] = move;
+		}
+		
+		// deeper cutoffs count for more
+		int index = (model.currentPlayer().ordinal() * 64 +
+				Moves.from(move)) * 64 + Moves.to(move);
+		history[index] += depth * depth;
+		if (history[index] >= HISTORY_LIMIT) {
+			for (int i = 0; i < history.length; i++) {
+				history[i] >>= 1;
+			}
+		}
+		
+		// the move refutes the opponent's last move
+		int last = model.lastMove();
+		if (last != Moves.NONE) {
+			counters[model.pieceOn(Moves.to(last)) * 64 +
+					Moves.to(last)] = move;
+		}
+	}
+
+/*********************************************************************
+Forgets everything learned, before searching an unrelated position.
+
+@param none
+@return none
+*********************************************************************/
+	public void clear() {
+		Arrays.fill(killers, Moves.NONE);
+		Arrays.fill(history, 0);
+		Arrays.fill(counters, Moves.NONE);
+	}
+}
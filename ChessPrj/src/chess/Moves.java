@@ -0,0 +1,124 @@
+package chess;
+
+/*********************************************************************
+Packed int encoding of moves, used by the move generator and search
+so that moves never need to be allocated. A packed move holds the
+"from" square in bits 0-5, the "to" square in bits 6-11, the 
+PieceKind ordinal a pawn is promoted to in bits 12-14 (0 when the 
+move is not a promotion) and a capture flag in bit 15. Squares are 
+numbered {@code row * 8 + column}. The value 0 never describes a real
+move and stands for "no move".
+
+@version March 2013
+*********************************************************************/
+public final class Moves {
+
+	/** packed value that stands for no move */
+	public static final int NONE = 0;
+
+	/** flag set on moves that capture a piece */
+	public static final int CAPTURE = 1 << 15;
+
+/*********************************************************************
+Private constructor, the class only holds static methods.
+
+@param none
+@return none
+*********************************************************************/
+	private Moves() {
+	}
+
+/*********************************************************************
+Packs a move without a promotion.
+
+@param from the square the piece leaves
+@param to the square the piece arrives on
+@return int the packed move
+*********************************************************************/
+	public static int encode(int from, int to) {
+		return from | to << 6;
+	}
+
+/*********************************************************************
+Packs a move.
+
+@param from the square the piece leaves
+@param to the square the piece arrives on
+@param promotion the PieceKind ordinal of the promotion, or 0
+@param flags CAPTURE or 0
+@return int the packed move
+*********************************************************************/
+	public static int encode(int from, int to, int promotion, 
+			int flags) {
+		return from | to << 6 | promotion << 12 | flags;
+	}
+
+/*********************************************************************
+Returns the square a packed move leaves.
+
+@param move the packed move
+@return int the "from" square
+*********************************************************************/
+	public static int from(int move) {
+		return move & 63;
+	}
+
+/*********************************************************************
+Returns the square a packed move arrives on.
+
+@param move the packed move
+@return int the "to" square
+*********************************************************************/
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+/*********************************************************************
+Returns the kind a packed move promotes a pawn to.
+
+@param move the packed move
+@return int the PieceKind ordinal of the promotion, or 0 for none
+*********************************************************************/
+	public static int promotion(int move) {
+		return (move >>> 12) & 7;
+	}
+
+/*********************************************************************
+Returns whether a packed move captures a piece.
+
+@param move the packed move
+@return boolean true for a capture
+*********************************************************************/
+	public static boolean isCapture(int move) {
+		return (move & CAPTURE) != 0;
+	}
+
+/*********************************************************************
+Returns a packed move in coordinate notation, such as "e2e4" or 
+"a7a8q", with row 0 of the board being rank 8.
+
+@param move the packed move
+@return String the move in coordinate notation
+*********************************************************************/
+	public static String toString(int move) {
+		StringBuilder text = new StringBuilder(5);
+		appendSquare(text, from(move));
+		appendSquare(text, to(move));
+		if (promotion(move) != 0) {
+			text.append("pnbrqk".charAt(promotion(move)));
+		}
+		return text.toString();
+	}
+
+/*********************************************************************
+Appends a square in coordinate notation, such as "e2".
+
+@param text where the square is appended
+@param square the square number
+@return none
+*********************************************************************/
+	static void appendSquare(StringBuilder text, int square) {
+		text.append((char) ('a' + (square & 7)));
+		text.append((char) ('8' - (square >>> 3)));
+	}
+}
@@ -0,0 +1,283 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*********************************************************************
+Perft (see Perft) spread over several threads with a ForkJoinPool. 
+The moves of the first SPLIT_PLIES plies become separate tasks, each
+counting on its own copy of the ChessModel, so the work divides into
+hundreds of independent subtrees. Threads can optionally share a 
+cache of subtree counts keyed by position hash and depth, which 
+skips subtrees reached again through a different move order.
+
+@version March 2013
+*********************************************************************/
+public final class ParallelPerft {
+
+	/** number of plies whose moves are split into separate tasks */
+	private static final int SPLIT_PLIES = 2;
+
+	/** pool running the counting tasks */
+	private final ForkJoinPool pool;
+
+	/** shared subtree counts, or null when caching is off */
+	private final Cache cache;
+
+/*********************************************************************
+Constructor method, creates a counter using a number of threads and 
+an optional cache.
+
+@param threads the number of threads to count with
+@param cacheMegabytes the size of the shared cache, or 0 for none
+@return none
+*********************************************************************/
+	public ParallelPerft(int threads, int cacheMegabytes) {
+		pool = new ForkJoinPool(threads);
+		cache = cacheMegabytes > 0 ? new Cache(cacheMegabytes) : null;
+	}
+
+/*********************************************************************
+Counts the positions reached after exactly depth moves. The model is
+not changed.
+
+@param model the starting position
+@param depth the number of moves to make
+@return long the number of positions reached
+*********************************************************************/
+	public long count(ChessModel model, int depth) {
+		return pool.invoke(new Task(new ChessModel(model), depth, 
+				SPLIT_PLIES));
+	}
+
+/*********************************************************************
+Stops the threads of the pool once counting is finished.
+
+@param none
+@return none
+*********************************************************************/
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+/*********************************************************************
+Counts the positions below a position on the calling thread, using 
+and filling the cache.
+
+@param model the position, returned to its original state afterwards
+@param depth the number of moves to make
+@param lists one move buffer for each remaining depth
+@return long the number of positions reached
+*********************************************************************/
+	private long countSerial(ChessModel model, int depth, 
+			MoveList[] lists) {
+		if (depth == 0) {
+			return 1;
+		}
+		
+		// look for a count stored by any thread
+		if (cache != null && depth > 1) {
+			long nodes = cache.get(model.hash(), depth);
+			if (nodes >= 0) {
+				return nodes;
+			}
+		}
+		
+		// generate the moves of this ply
+		MoveList moves = lists[depth];
+		moves.clear();
+		model.generateLegalMoves(moves);
+		
+		// bulk count the last ply
+		if (depth == 1) {
+			return moves.size();
+		}
+		
+		// add up the counts below each move
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			model.makeMove(moves.get(i));
+			nodes += countSerial(model, depth - 1, lists);
+			model.unmakeMove();
+		}
+		if (cache != null) {
+			cache.put(model.hash(), depth, nodes);
+		}
+		return nodes;
+	}
+
+/*********************************************************************
+Fork/join task counting the positions below one position. While 
+plies remain to be split, it forks a task for each move on a copy of
+the model; after that it counts on its own thread.
+*********************************************************************/
+	@SuppressWarnings("serial")
+	private final class Task extends RecursiveTask<Long> {
+
+		/** the position, owned by this task */
+		private final ChessModel model;
+
+		/** the number of moves to make */
+		private final int depth;
+
+		/** the number of plies still to be split into tasks */
+		private final int split;
+
+/*********************************************************************
+Constructor method, creates a task for a position.
+
+@param model the position, which must not be shared
+@param depth the number of moves to make
+@param split the number of plies still to be split into tasks
+@return none
+*********************************************************************/
+		Task(ChessModel model, int depth, int split) {
+			this.model = model;
+			this.depth = depth;
+			this.split = split;
+		}
+
+/*********************************************************************
+Counts the positions below this task's position.
+
+@param none
+@return Long the number of positions reached
+*********************************************************************/
+		protected Long compute() {
+			
+			// small subtrees are counted on this thread
+			if (split == 0 || depth <= 2) {
+				MoveList[] lists = new MoveList[depth + 1];
+				for (int i = 0; i < lists.length; i++) {
+					lists[i] = new MoveList();
+				}
+				return countSerial(model, depth, lists);
+			}
+			
+			// fork a task for each move on its own copy
+			MoveList moves = new MoveList();
+			model.generateLegalMoves(moves);
+			List<Task> tasks = new ArrayList<Task>(moves.size());
+			for (int i = 0; i < moves.size(); i++) {
+				ChessModel child = new ChessModel(model);
+				child.makeMove(moves.get(i));
+				tasks.add(new Task(child, depth - 1, split - 1));
+			}
+			invokeAll(tasks);
+			
+			// add up their counts
+			long nodes = 0;
+			for (Task task : tasks) {
+				nodes += task.join();
+			}
+			return nodes;
+		}
+	}
+
+/*********************************************************************
+Lockless table of subtree counts shared by all threads. Each entry is
+two longs: the position hash exclusive-ored with the data, then the 
+data, which holds the count above the low 8 bits and the depth in 
+them. A torn entry fails the check and reads as a miss.
+*********************************************************************/
+	private static final class Cache {
+
+		/** the entries, two longs each */
+		private final long[] entries;
+
+		/** number of entries minus one */
+		private final int mask;
+
+/*********************************************************************
+Constructor method, creates a cache of at most the given size.
+
+@param megabytes the size of the cache in megabytes
+@return none
+*********************************************************************/
+		Cache(int megabytes) {
+			int count = Integer.highestOneBit(
+					(int) Math.min((long) megabytes << 16, 1 << 29));
+			entries = new long[2 * count];
+			mask = count - 1;
+		}
+
+/*********************************************************************
+Looks up the count below a position.
+
+@param hash the hash of the position
+@param depth the depth counted
+@return long the stored count, or -1 if it is not stored
+*********************************************************************/
+		long get(long hash, int depth) {
+			int index = 2 * ((int) hash & mask);
+			long check = entries[index];
+			long data = entries[index + 1];
+			if ((check ^ data) == hash && (data & 0xFF) == depth) {
+				return data >>> 8;
+			}
+			return -1;
+		}
+
+/*********************************************************************
+Stores the count below a position, replacing whatever was there.
+
+@param hash the hash of the position
+@param depth the depth counted
+@param nodes the number of positions reached
+@return none
+*********************************************************************/
+		void put(long hash, int depth, long nodes) {
+			int index = 2 * ((int) hash & mask);
+			long data = nodes << 8 | depth;
+			entries[index] = hash ^ data;
+			entries[index + 1] = data;
+		}
+	}
+
+/*********************************************************************
+Runs parallel perft from a FEN position, or the starting position, 
+and prints the total, the time taken and the nodes counted per second.
+Usage: {@code java chess.ParallelPerft depth [threads] [cacheMB] 
+[fen]}
+
+@param args the depth, the number of threads (all processors by 
+		default), the cache size in megabytes (none by default), then 
+		optionally the fields of a FEN position
+@return none
+*********************************************************************/
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: java chess.ParallelPerft depth " +
+					"[threads] [cacheMB] [fen]");
+			System.exit(2);
+		}
+		int depth = Integer.parseInt(args[0]);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : 
+				Runtime.getRuntime().availableProcessors();
+		int cacheMegabytes = args.length > 2 ? 
+				Integer.parseInt(args[2]) : 0;
+		
+		// count from the given position, or the starting position
+		ChessModel model = new ChessModel();
+		if (args.length > 3) {
+			StringBuilder fen = new StringBuilder();
+			for (int i = 3; i < args.length; i++) {
+				fen.append(args[i]).append(' ');
+			}
+			model.setFen(fen.toString().trim());
+		}
+		ParallelPerft perft = new ParallelPerft(threads, cacheMegabytes);
+		long start = System.nanoTime();
+		long nodes = perft.count(model, depth);
+		long elapsed = System.nanoTime() - start;
+		perft.shutdown();
+		
+		System.out.println("Nodes: " + nodes);
+		System.out.println("Threads: " + threads);
+		System.out.println("Time: " + elapsed / 1000000 + " ms");
+		System.out.println("Nodes/second: " + 
+				(long) (nodes * 1e9 / Math.max(elapsed, 1)));
+	}
+}
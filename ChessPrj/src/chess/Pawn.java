@@ -32,13 +32,24 @@ Returns the designated name of this piece.
 	public String type() {
 		return "Pawn";
 	}
+
+/*********************************************************************
+Returns the kind of this piece.
+
+@param none
+@return PieceKind the kind of the piece
+*********************************************************************/
+	public PieceKind kind() {
+		return PieceKind.PAWN;
+	}
 	
 /*********************************************************************
 Move validity test for Pawn. Pawn can move forward two spaces from
 initial position (provided nothing blocks the path to its destination)
 and only one space forward if not in initial position. Pawn cannot 
 take pieces directly in front of it, only diagonally, to either side 
-of its front face. 
+of its front face. Destinations are looked up in the precomputed pawn
+tables of the owning player.
 
 @param move the move being examined
 @param board the board on which the move is being made
@@ -52,110 +63,29 @@ of its front face.
 		// checks to see that the general move set is valid
 		if (super.isValidMove(move, board)) {
 			
-			// checks to see if it is black's turn
-			if (board[move.fromRow][move.fromColumn].player() == 
-					Player.BLACK) {
-				
-				/* checks to see if the piece is being moved 
-				 * diagonally down and over one space
-				 */
-				if (((move.toRow - 1 == move.fromRow) && 
-						(move.toColumn + 1 == move.fromColumn)) ||
-						((move.toRow - 1 == move.fromRow) && 
-						(move.toColumn - 1 == move.fromColumn))) {
-					
-					/* checks to see if this piece is taking another 
-					 * player's piece
-					 */
-					if (board[move.toRow][move.toColumn] != null) {
-						valid = true;
-					}
-				}
-				
-				/* checks to see if this piece is a white pawn 
-				 * in row 2
-				 */
-				if (move.fromRow == 1) {
-					
-					/* checks to see if this piece is being 
-					 * moved 2 spaces forward
-					 */
-					if ((move.toColumn == move.fromColumn) && 
-							(move.toRow == 3)) {
-						
-						/* checks to see if this piece has a 
-						 * clear path
-						 */
-						if ((board[2][move.fromColumn]) == null && 
-								(board[3][move.fromColumn]) == null) {
-							valid = true;
-						}
-					}
-				}
-				
-				/* checks to see if this piece is being moved down 
-				 * one row
-				 */
-				if ((move.toColumn == move.fromColumn) && 
-						(move.toRow - 1 == move.fromRow)) {
-					
-					// checks to see if this piece has a clear path
-					if ((board[move.toRow][move.toColumn]) == null) {
-						valid = true;
-					}
-				}	
+			// the owner of the pawn and the squares involved
+			int color = player().ordinal();
+			int from = Position.square(move.fromRow, move.fromColumn);
+			long to = 1L << Position.square(move.toRow, move.toColumn);
+			
+			/* checks to see if this piece is taking another 
+			 * player's piece diagonally
+			 */
+			if (board[move.toRow][move.toColumn] != null) {
+				valid = (Attacks.PAWN[color][from] & to) != 0;
+			}
+			
+			// checks to see if this piece is moved forward one row
+			else if ((Attacks.PAWN_STEP[color][from] & to) != 0) {
+				valid = true;
 			}
 			
-			// checks to see if it is black's turn
-			else if (board[move.fromRow][move.fromColumn].player() == 
-					Player.WHITE) {
-				
-				/* checks to see if the piece is being moved 
-				 * diagonally up and over one space
-				 */
-				if (((move.toRow + 1 == move.fromRow) && 
-						(move.toColumn + 1 == move.fromColumn)) ||
-						((move.toRow + 1 == move.fromRow) && 
-						(move.toColumn - 1 == move.fromColumn))) {
-					
-					/* checks to see if this piece is taking another 
-					 * player's piece
-					 */
-					if (board[move.toRow][move.toColumn] != null) {
-						valid = true;
-					}
-				}
-				
-				// checks to see if this piece is a black pawn in row 7
-				if (move.fromRow == 6) {
-					
-					/* checks to see if this piece is being moved 2 
-					 * spaces forward
-					 */
-					if ((move.toColumn == move.fromColumn) && 
-							(move.toRow == 4)) {
-						
-						/* checks to see if this piece has a 
-						 * clear path
-						 */
-						if ((board[5][move.fromColumn]) == null && 
-								(board[4][move.fromColumn]) == null) {
-							valid = true;
-						}
-					}
-				}
-				
-				/* checks to see if this piece is being moved 
-				 * up one row
-				 */
-				if ((move.toColumn == move.fromColumn) && 
-						(move.toRow + 1 == move.fromRow)) {
-					
-					// checks to see if this piece has a clear path
-					if ((board[move.toRow][move.toColumn]) == null ) {
-						valid = true;
-					}
-				}	
+			/* checks to see if this piece is moved forward two rows
+			 * from its starting row with a clear path
+			 */
+			else if ((Attacks.PAWN_JUMP[color][from] & to) != 0) {
+				valid = board[(move.fromRow + move.toRow) / 2]
+						[move.fromColumn] == null;
 			}
 		}
 		return valid;
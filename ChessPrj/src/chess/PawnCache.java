@@ -0,0 +1,267 @@
+package chess;
+
+import java.util.Arrays;
+
+/*********************************************************************
+Scores pawn structure and caches the scores by the placement of the
+pawns alone. Pawns move or are captured on only a fraction of moves,
+so most positions met in a search reuse the score of one already
+seen. For each player the structure is judged pawn by pawn:
+	doubled, another of the player's pawns stands on the same column,
+	isolated, none of the player's pawns stand on either neighbouring
+		column,
+	passed, no opposing pawn stands ahead of it on its own or a
+		neighbouring column, so nothing but pieces can stop it,
+	backward, no pawn of the player on a neighbouring column is level
+		with or behind it to support its advance, and the square in
+		front of it is attacked by an opposing pawn.
+Each entry keeps the middlegame and endgame scores, from white's
+side, and the set of passed pawns of both players. Entries are
+replaced on collision. A cache is not thread safe; every thread
+searching keeps its own, as each ChessModel does.
+
+@version March 2013
+*********************************************************************/
+public final class PawnCache {
+
+	/** number of entries a ChessModel's own cache starts with */
+	public static final int DEFAULT_ENTRIES = 4096;
+
+	/** the squares of the first column */
+	private static final long COLUMN = 0x0101010101010101L;
+
+	/** squares in front of a square's row, by player ordinal and
+	 * row, in the direction that player's pawns move
+	 */
+	private static final long[][] AHEAD = new long[2][8];
+
+	static {
+		for (int row = 0; row < 8; row++) {
+			
+			// white's pawns move towards row 0, black's away from it
+			AHEAD[Player.WHITE.ordinal()][row] = (1L << (row * 8)) - 1;
+			AHEAD[Player.BLACK.ordinal()][row] = row == 7 ? 0 :
+					-1L << ((row + 1) * 8);
+		}
+	}
+
+	/** pawn hash of each entry */
+	private final long[] keys;
+
+	/** middlegame score of each entry, from white's side */
+	final int[] mg;
+
+	/** endgame score of each entry, from white's side */
+	final int[] eg;
+
+	/** passed pawns of both players in each entry */
+	final long[] passed;
+
+	/** number of entries minus one, used to mask keys into indexes */
+	private final int mask;
+
+	/** weights the entries were scored with */
+	private EvalWeights weights;
+
+	/** number of lookups */
+	private long probes;
+
+	/** number of lookups that found their entry */
+	private long hits;
+
+/*********************************************************************
+Constructor method, creates an empty cache with at least a number of
+entries, rounded up to a power of two.
+
+@param entries the number of entries wanted
+@return none
+@throws IllegalArgumentException if entries is less than 1 or more
+		than 2^30
+*********************************************************************/
+	public PawnCache(int entries) {
+		if (entries < 1 || entries > 1 << 30) {
+			throw new IllegalArgumentException(
+					"Entries must be between 1 and 2^30: " + entries);
+		}
+		int size = Integer.highestOneBit(entries);
+		if (size < entries) {
+			size <<= 1;
+		}
+		keys = new long[size];
+		mg = new int[size];
+		eg = new int[size];
+		passed = new long[size];
+		mask = size - 1;
+		clear();
+	}
+
+/*********************************************************************
+Returns the entry for the pawns of a position, scoring them first if
+they are not cached. Entries scored with other weights are thrown
+away.
+
+@param position the position whose pawns are scored
+@return int the index of the entry in mg, eg and passed
+*********************************************************************/
+	int lookup(Position position) {
+		if (weights != position.weights) {
+			clear();
+			weights = position.weights;
+		}
+		
+		// use the entry if it holds these pawns
+		long key = position.pawnHash;
+		int index = (int) key & mask;
+		probes++;
+		if (keys[index] == key) {
+			hits++;
+			return index;
+		}
+		
+		// score both players' pawns
+		keys[index] = key;
+		mg[index] = 0;
+		eg[index] = 0;
+		passed[index] = 0;
+		for (int color = 0; color < 2; color++) {
+			score(position, color, index);
+		}
+		return index;
+	}
+
+/*********************************************************************
+Adds the structure of one player's pawns to an entry.
+
+@param position the position whose pawns are scored
+@param color the ordinal of the player
+@param index the entry being filled
+@return none
+*********************************************************************/
+	private void score(Position position, int color, int index) {
+		long own = position.pieces(color, Position.PAWN);
+		long enemy = position.pieces(1 - color, Position.PAWN);
+		boolean white = color == Player.WHITE.ordinal();
+		int[] structure = weights.structure;
+		
+		// penalties and bonuses for this player
+		int mgScore = 0;
+		int egScore = 0;
+		
+		for (long pawns = own; pawns != 0; pawns &= pawns - 1) {
+			int square = Long.numberOfTrailingZeros(pawns);
+			int row = square >>> 3;
+			int column = square & 7;
+			
+			// the pawn's column and the columns beside it
+			long file = COLUMN << column;
+			long beside = (column > 0 ? file >>> 1 : 0) |
+					(column < 7 ? file << 1 : 0);
+			
+			// another pawn of the player on the same column
+			if ((own & file & ~(1L << square)) != 0) {
+				mgScore += structure[EvalWeights.DOUBLED];
+				egScore += structure[EvalWeights.DOUBLED + 1];
+			}
+			
+			// no pawn of the player beside it
+			boolean isolated = (own & beside) == 0;
+			if (isolated) {
+				mgScore += structure[EvalWeights.ISOLATED];
+				egScore += structure[EvalWeights.ISOLATED + 1];
+			}
+			
+			// no opposing pawn can block or capture it
+			if ((enemy & (file | beside) & AHEAD[color][row]) == 0) {
+				int rank = white ? 7 - row : row;
+				mgScore += weights.passedMg[rank];
+				egScore += weights.passedEg[rank];
+				passed[index] |= 1L << square;
+			}
+			
+			/* no pawn beside it can come up to support it, and an
+			 * opposing pawn guards the square in front of it
+			 */
+			else if (isolated == false &&
+					(own & beside & ~AHEAD[color][row]) == 0 &&
+					(Attacks.PAWN[color][white ? square - 8 : 
+					square + 8] & enemy) != 0) {
+				mgScore += structure[EvalWeights.BACKWARD];
+				egScore += structure[EvalWeights.BACKWARD + 1];
+			}
+		}
+		
+		// scores are kept from white's side
+		mg[index] += white ? mgScore : -mgScore;
+		eg[index] += white ? egScore : -egScore;
+	}
+
+/*********************************************************************
+Empties the cache and resets its statistics.
+
+@param none
+@return none
+*********************************************************************/
+	public void clear() {
+		
+		// the entry of a position without pawns is always correct
+		Arrays.fill(keys, 0);
+		Arrays.fill(mg, 0);
+		Arrays.fill(eg, 0);
+		Arrays.fill(passed, 0);
+		probes = 0;
+		hits = 0;
+	}
+
+/*********************************************************************
+Returns the number of entries in the cache.
+
+@param none
+@return int the number of entries
+*********************************************************************/
+	public int entries() {
+		return mask + 1;
+	}
+
+/*********************************************************************
+Returns the number of lookups since the cache was created or cleared.
+
+@param none
+@return long the number of lookups
+*********************************************************************/
+	public long probes() {
+		return probes;
+	}
+
+/*********************************************************************
+Returns the number of lookups that found their entry.
+
+@param none
+@return long the number of hits
+*********************************************************************/
+	public long hits() {
+		return hits;
+	}
+
+/*********************************************************************
+Returns the share of lookups that found their entry, for choosing
+the size of the cache.
+
+@param none
+@return double the hit rate between 0 and 1, or 0 if there have been
+		no lookups
+*********************************************************************/
+	public double hitRate() {
+		return probes == 0 ? 0 : (double) hits / probes;
+	}
+
+/*********************************************************************
+Returns the size and statistics of the cache.
+
+@param none
+@return String the size and statistics
+*********************************************************************/
+	public String toString() {
+		return String.format("%d entries, %d probes, %.1f%% hits",
+				entries(), probes, 100 * hitRate());
+	}
+}
@@ -0,0 +1,132 @@
+package chess;
+
+import java.io.PrintStream;
+
+/*********************************************************************
+Counts the positions reachable from a ChessModel position in an exact
+number of moves ("perft"). The counts are a correctness check for the
+move rules and a measure of how fast moves can be generated and made.
+At the last ply the legal moves are counted without being made (bulk
+counting). One MoveList is kept per ply, so counting does not 
+allocate.
+
+@version March 2013
+*********************************************************************/
+public final class Perft {
+
+	/** one move buffer for each remaining depth */
+	private final MoveList[] lists;
+
+/*********************************************************************
+Constructor method, creates a counter for depths up to a maximum.
+
+@param maxDepth the largest depth that will be counted
+@return none
+*********************************************************************/
+	public Perft(int maxDepth) {
+		lists = new MoveList[maxDepth + 1];
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = new MoveList();
+		}
+	}
+
+/*********************************************************************
+Counts the positions reached after exactly depth moves. The model is
+returned to its original position afterwards.
+
+@param model the starting position
+@param depth the number of moves to make
+@return long the number of positions reached
+*********************************************************************/
+	public long count(ChessModel model, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		
+		// generate the moves of this ply
+		MoveList moves = lists[depth];
+		moves.clear();
+		model.generateLegalMoves(moves);
+		
+		// bulk count the last ply
+		if (depth == 1) {
+			return moves.size();
+		}
+		
+		// add up the counts below each move
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			model.makeMove(moves.get(i));
+			nodes += count(model, depth - 1);
+			model.unmakeMove();
+		}
+		return nodes;
+	}
+
+/*********************************************************************
+Counts the positions reached after exactly depth moves and prints the
+count below each move of the starting position, followed by the 
+total.
+
+@param model the starting position
+@param depth the number of moves to make, at least 1
+@param out where the counts are printed
+@return long the number of positions reached
+*********************************************************************/
+	public long divide(ChessModel model, int depth, PrintStream out) {
+		
+		/* the moves of the starting position, kept apart from the 
+		 * buffers used while counting
+		 */
+		MoveList moves = new MoveList();
+		model.generateLegalMoves(moves);
+		
+		// count and print below each move
+		long nodes = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			model.makeMove(moves.get(i));
+			long count = count(model, depth - 1);
+			model.unmakeMove();
+			out.println(Moves.toString(moves.get(i)) + ": " + count);
+			nodes += count;
+		}
+		out.println();
+		out.println("Moves: " + moves.size());
+		out.println("Nodes: " + nodes);
+		return nodes;
+	}
+
+/*********************************************************************
+Runs perft from a FEN position, or the starting position, and prints
+the divide output, the time taken and the nodes counted per second. 
+Usage: {@code java chess.Perft depth [fen]}
+
+@param args the depth to count to, then optionally the fields of a 
+		FEN position
+@return none
+*********************************************************************/
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: java chess.Perft depth [fen]");
+			System.exit(2);
+		}
+		int depth = Integer.parseInt(args[0]);
+		
+		// count from the given position, or the starting position
+		ChessModel model = new ChessModel();
+		if (args.length > 1) {
+			StringBuilder fen = new StringBuilder();
+			for (int i = 1; i < args.length; i++) {
+				fen.append(args[i]).append(' ');
+			}
+			model.setFen(fen.toString().trim());
+		}
+		long start = System.nanoTime();
+		long nodes = new Perft(depth).divide(model, depth, System.out);
+		long elapsed = System.nanoTime() - start;
+		
+		System.out.println("Time: " + elapsed / 1000000 + " ms");
+		System.out.println("Nodes/second: " + 
+				(long) (nodes * 1e9 / Math.max(elapsed, 1)));
+	}
+}
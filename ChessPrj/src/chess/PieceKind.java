@@ -0,0 +1,33 @@
+package chess;
+
+/*********************************************************************
+Enumerated type denoting the kind of a chess piece. The ordinal of 
+each kind is a compact code that can index tables directly.
+
+@version March 2013
+*********************************************************************/
+public enum PieceKind {
+	PAWN("Pawn"), KNIGHT("Knight"), BISHOP("Bishop"), ROOK("Rook"),
+	QUEEN("Queen"), KING("King");
+
+	/** the name returned by {@link IChessPiece#type()} */
+	private final String type;
+
+	/**
+	 * Creates a kind with the given type name.
+	 *
+	 * @param type the name of the kind
+	 */
+	private PieceKind(String type) {
+		this.type = type;
+	}
+
+	/**
+	 * Return the type name of this kind ("King", "Queen", "Rook", etc.).
+	 *
+	 * @return the type name of this kind
+	 */
+	public String type() {
+		return type;
+	}
+}
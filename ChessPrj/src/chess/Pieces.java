@@ -0,0 +1,56 @@
+package chess;
+
+/*********************************************************************
+Shared instances of the twelve chess pieces. Pieces are immutable and
+don't store their own location, so a single instance of each kind of
+piece for each player can stand on any number of squares. The game 
+logic uses these instances instead of creating new pieces.
+
+@version March 2013
+*********************************************************************/
+public final class Pieces {
+
+	/** the shared pieces, indexed by Position piece number */
+	private static final IChessPiece[] PIECES = new IChessPiece[12];
+
+	static {
+		for (Player player : Player.values()) {
+			IChessPiece[] pieces = {new Pawn(player), new Knight(player),
+					new Bishop(player), new Rook(player), new Queen(player),
+					new King(player)};
+			for (IChessPiece piece : pieces) {
+				PIECES[Position.pieceOf(piece)] = piece;
+			}
+		}
+	}
+
+/*********************************************************************
+Private constructor, the class only holds the shared pieces.
+
+@param none
+@return none
+*********************************************************************/
+	private Pieces() {
+	}
+
+/*********************************************************************
+Returns the shared piece of a kind owned by a player.
+
+@param player the player who owns the piece
+@param kind the kind of the piece
+@return IChessPiece the shared piece
+*********************************************************************/
+	public static IChessPiece of(Player player, PieceKind kind) {
+		return PIECES[Position.piece(player.ordinal(), kind.ordinal())];
+	}
+
+/*********************************************************************
+Returns the shared piece for a Position piece number.
+
+@param piece the piece number, or Position.EMPTY
+@return IChessPiece the shared piece, or null for an empty square
+*********************************************************************/
+	static IChessPiece of(int piece) {
+		return piece == Position.EMPTY ? null : PIECES[piece];
+	}
+}
@@ -0,0 +1,288 @@
+package chess;
+
+import java.util.Arrays;
+
+/*********************************************************************
+Bitboard representation of the pieces on a chess board. Every kind of
+piece for every player is kept as a 64-bit set with one bit per
+square, alongside an occupancy set for each player and a mailbox that
+records which piece sits on each square. Zobrist hashes and evaluation
+totals are updated as pieces are placed and removed.
+Squares are numbered row-major from the top left corner of the board,
+so square {@code row * 8 + column} is {@code board[row][column]}.
+
+@version March 2013
+*********************************************************************/
+final class Position {
+
+	/* kind numbers, equal to the ordinals of the matching PieceKind */
+
+	/** kind number for pawns */
+	static final int PAWN = 0;
+
+	/** kind number for knights */
+	static final int KNIGHT = 1;
+
+	/** kind number for bishops */
+	static final int BISHOP = 2;
+
+	/** kind number for rooks */
+	static final int ROOK = 3;
+
+	/** kind number for queens */
+	static final int QUEEN = 4;
+
+	/** kind number for kings */
+	static final int KING = 5;
+
+	/** number of piece kinds per player */
+	static final int KINDS = 6;
+
+	/** mailbox value of a square without a piece */
+	static final int EMPTY = -1;
+
+	/** piece sets, indexed by {@link #piece(int, int)} */
+	final long[] pieces = new long[2 * KINDS];
+
+	/** occupancy sets, indexed by player ordinal */
+	final long[] occupied = new long[2];
+
+	/** piece number standing on each square, or EMPTY */
+	final byte[] squares = new byte[64];
+
+	/** square of each player's king, or EMPTY if it has none */
+	final int[] kings = {EMPTY, EMPTY};
+
+	/** Zobrist hash of the pieces, updated as they are placed and 
+	 * removed; the owner adds the side to move
+	 */
+	long hash;
+
+	/** Zobrist hash of the pawns alone, used to look up pawn 
+	 * structure
+	 */
+	long pawnHash;
+
+	/** weights the evaluation totals are counted with */
+	EvalWeights weights = EvalWeights.DEFAULT;
+
+	/** middlegame value and table total of each player's pieces */
+	final int[] mg = new int[2];
+
+	/** endgame value and table total of each player's pieces */
+	final int[] eg = new int[2];
+
+	/** game phase counted from the pieces on the board */
+	int phase;
+
+/*********************************************************************
+Constructor method, creates an empty position.
+
+@param none
+@return none
+*********************************************************************/
+	Position() {
+		Arrays.fill(squares, (byte) EMPTY);
+	}
+
+/*********************************************************************
+Copy constructor, creates an independent copy of a position.
+
+@param other the position to copy
+@return none
+*********************************************************************/
+	Position(Position other) {
+		set(other);
+	}
+
+/*********************************************************************
+Makes this position an independent copy of another.
+
+@param other the position to copy
+@return none
+*********************************************************************/
+	void set(Position other) {
+		System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+		System.arraycopy(other.occupied, 0, occupied, 0, 
+				occupied.length);
+		System.arraycopy(other.squares, 0, squares, 0, squares.length);
+		System.arraycopy(other.kings, 0, kings, 0, kings.length);
+		hash = other.hash;
+		pawnHash = other.pawnHash;
+		weights = other.weights;
+		System.arraycopy(other.mg, 0, mg, 0, mg.length);
+		System.arraycopy(other.eg, 0, eg, 0, eg.length);
+		phase = other.phase;
+	}
+
+/*********************************************************************
+Combines a player ordinal and a kind number into a piece number.
+
+@param color the ordinal of the owning player
+@param kind the kind number of the piece
+@return int the piece number
+*********************************************************************/
+	static int piece(int color, int kind) {
+		return color * KINDS + kind;
+	}
+
+/*********************************************************************
+Returns the kind number of a piece number.
+
+@param piece the piece number
+@return int the kind number
+*********************************************************************/
+	static int kind(int piece) {
+		return piece % KINDS;
+	}
+
+/*********************************************************************
+Returns the player ordinal of a piece number.
+
+@param piece the piece number
+@return int the ordinal of the owning player
+*********************************************************************/
+	static int color(int piece) {
+		return piece / KINDS;
+	}
+
+/*********************************************************************
+Returns the square number of a board coordinate.
+
+@param row the row of the square
+@param column the column of the square
+@return int the square number
+*********************************************************************/
+	static int square(int row, int column) {
+		return (row << 3) | column;
+	}
+
+/*********************************************************************
+Returns the piece number of an IChessPiece.
+
+@param piece the piece being examined
+@return int the piece number
+*********************************************************************/
+	static int pieceOf(IChessPiece piece) {
+		return piece(piece.player().ordinal(), piece.kind().ordinal());
+	}
+
+/*********************************************************************
+Returns the set of all occupied squares.
+
+@param none
+@return long the occupied squares
+*********************************************************************/
+	long all() {
+		return occupied[0] | occupied[1];
+	}
+
+/*********************************************************************
+Returns the set of squares holding one kind of piece of a player.
+
+@param color the ordinal of the owning player
+@param kind the kind number of the pieces
+@return long the squares holding those pieces
+*********************************************************************/
+	long pieces(int color, int kind) {
+		return pieces[piece(color, kind)];
+	}
+
+/*********************************************************************
+Returns the piece number on a square.
+
+@param square the square being examined
+@return int the piece number, or EMPTY
+*********************************************************************/
+	int pieceAt(int square) {
+		return squares[square];
+	}
+
+/*********************************************************************
+Places a piece on an empty square.
+
+@param square the square to place the piece on
+@param piece the piece number being placed
+@return none
+*********************************************************************/
+	void put(int square, int piece) {
+		long bit = 1L << square;
+		pieces[piece] |= bit;
+		occupied[color(piece)] |= bit;
+		squares[square] = (byte) piece;
+		hash ^= Zobrist.PIECES[piece][square];
+		mg[color(piece)] += weights.mg[piece][square];
+		eg[color(piece)] += weights.eg[piece][square];
+		phase += weights.phases[kind(piece)];
+		if (kind(piece) == PAWN) {
+			pawnHash ^= Zobrist.PIECES[piece][square];
+		}
+		else if (kind(piece) == KING) {
+			kings[color(piece)] = square;
+		}
+	}
+
+/*********************************************************************
+Removes whatever piece stands on a square.
+
+@param square the square to clear
+@return int the piece number that was removed, or EMPTY
+*********************************************************************/
+	int remove(int square) {
+		int piece = squares[square];
+		if (piece != EMPTY) {
+			long bit = 1L << square;
+			pieces[piece] &= ~bit;
+			occupied[color(piece)] &= ~bit;
+			squares[square] = (byte) EMPTY;
+			hash ^= Zobrist.PIECES[piece][square];
+			mg[color(piece)] -= weights.mg[piece][square];
+			eg[color(piece)] -= weights.eg[piece][square];
+			phase -= weights.phases[kind(piece)];
+			if (kind(piece) == PAWN) {
+				pawnHash ^= Zobrist.PIECES[piece][square];
+			}
+			else if (kind(piece) == KING && 
+					kings[color(piece)] == square) {
+				kings[color(piece)] = EMPTY;
+			}
+		}
+		return piece;
+	}
+
+/*********************************************************************
+Changes the evaluation weights and counts the totals again with them.
+
+@param weights the new weights
+@return none
+*********************************************************************/
+	void setWeights(EvalWeights weights) {
+		this.weights = weights;
+		mg[0] = mg[1] = eg[0] = eg[1] = phase = 0;
+		for (int square = 0; square < 64; square++) {
+			int piece = squares[square];
+			if (piece != EMPTY) {
+				mg[color(piece)] += weights.mg[piece][square];
+				eg[color(piece)] += weights.eg[piece][square];
+				phase += weights.phases[kind(piece)];
+			}
+		}
+	}
+
+/*********************************************************************
+Moves the piece on one square to another, removing any piece that
+stood on the destination.
+
+@param from the square the piece leaves
+@param to the square the piece arrives on
+@return int the piece number that was captured, or EMPTY
+*********************************************************************/
+	int move(int from, int to) {
+		int captured = remove(to);
+		int piece = remove(from);
+		if (piece != EMPTY) {
+			put(to, piece);
+		}
+		return captured;
+	}
+}
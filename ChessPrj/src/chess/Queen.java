@@ -32,11 +32,22 @@ Returns the designated name of this piece.
 	public String type() {
 		return "Queen";
 	}
+
+/*********************************************************************
+Returns the kind of this piece.
+
+@param none
+@return PieceKind the kind of the piece
+*********************************************************************/
+	public PieceKind kind() {
+		return PieceKind.QUEEN;
+	}
 	
 /*********************************************************************
 Move validity test for Queen. Queen can be moved horizontally,
 vertically, or diagonally so long as it has a clear path to the
-destination.
+destination. The squares the queen attacks are looked up in the rook
+and bishop magic bitboard tables.
 
 @param move the move being examined
 @param board the board on which the move is being made
@@ -44,14 +55,21 @@ destination.
 *********************************************************************/
 	public boolean isValidMove(Move move, IChessPiece[][] board) {
 		
-		// creates a new bishop and rook at from position
-		Bishop move1 = new Bishop(
-				board[move.fromRow][move.fromColumn].player());
-		Rook move2 = new Rook(
-				board[move.fromRow][move.fromColumn].player());
+		// the boolean value that is returned
+		boolean valid = false;
 		
-		// returns true if either rook or bishop move set is valid
-		return (move1.isValidMove(move, board) || 
-				move2.isValidMove(move, board));
+		// checks to see that the general move set is valid
+		if (super.isValidMove(move, board)) {
+			
+			// square the queen starts on
+			int from = Position.square(move.fromRow, move.fromColumn);
+			
+			// checks the destination against the queen's attacks
+			valid = (Attacks.queen(from, occupancy(board, 
+					Attacks.ROOK_MASK[from] | Attacks.BISHOP_MASK[from]))
+					& (1L << Position.square(move.toRow, 
+					move.toColumn))) != 0;
+		}
+		return valid;
 	}
 }
@@ -32,10 +32,22 @@ Returns the designated name of this piece.
 	public String type() {
 		return "Rook";
 	}
+
+/*********************************************************************
+Returns the kind of this piece.
+
+@param none
+@return PieceKind the kind of the piece
+*********************************************************************/
+	public PieceKind kind() {
+		return PieceKind.ROOK;
+	}
 	
 /*********************************************************************
 Move validity test for Rook. Rook can move horizontally or vertically
-so long as no pieces block the path to its destination.
+so long as no pieces block the path to its destination. The squares 
+the rook attacks are looked up in the magic bitboard tables from the 
+pieces that could block it.
 
 @param move the move being examined
 @param board the board on which the move is being made
@@ -45,83 +57,17 @@ so long as no pieces block the path to its destination.
 		
 		// the boolean value that is returned
 		boolean valid = false;
-
-		// where to start for loops
-		int startRow;
-		int startColumn;
 		
 		// checks to see that the general move set is valid
 		if (super.isValidMove(move, board)) {
-
-			// checks to see if the columns are the same for the move
-			if (move.toColumn == move.fromColumn) {
-				
-				// sets the lower row value as the starting point
-				if (move.fromRow > move.toRow) {
-					startRow = move.toRow;
-				}
-				else {
-					startRow = move.fromRow;
-				}
-				
-				/* returns true if there is a clear path 
-				 * between points
-				 */
-				valid = true;
-				
-				// iterates through the pieces between the two points
-				for (int i = 0; i <= Math.abs(
-						move.toRow - move.fromRow); i++) {
-					
-					/* evaluates if there is a piece in the line, 
-					 * excluding end points
-					 */
-					if ((board[startRow + i][move.fromColumn] !=
-							null) && ((startRow + i) != 
-							move.fromRow) && ((startRow + i) != 
-							move.toRow)) {
-						
-						/* returns false if pieces exist 
-						 * between points
-						 */
-						valid = false;
-					}
-				}
-			}
 			
-			// checks to see if the rows are the same for the move
-			else if ((move.toRow == move.fromRow)) {
-				
-				// sets the lower column value as the starting point
-				if (move.fromColumn > move.toColumn) {
-					startColumn = move.toColumn;
-				}
-				else {	
-					startColumn = move.fromColumn;
-				}
-
-				/* returns true if there is a clear
-				 * path between points
-				 */
-				valid = true;
-				
-				// iterates through the pieces between the two points
-				for (int i = 0; i <= Math.abs(
-						move.toColumn - move.fromColumn); i++) {
-					
-					/* evaluates if there is a piece in the line, 
-					 * excluding end points
-					 */
-					if ((board[move.fromRow][startColumn + i] != 
-							null) && ((startColumn + i) !=
-							move.fromColumn) && ((startColumn + i) !=
-							move.toColumn)) {
-						
-						// returns false if pieces exist between points
-						valid = false;
-					}
-				}
-			}
+			// square the rook starts on
+			int from = Position.square(move.fromRow, move.fromColumn);
+			
+			// checks the destination against the rook's attacks
+			valid = (Attacks.rook(from, occupancy(board, 
+					Attacks.ROOK_MASK[from])) & (1L << Position.square(
+					move.toRow, move.toColumn))) != 0;
 		}
 		return valid;
 	}
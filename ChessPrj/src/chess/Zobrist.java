@@ -0,0 +1,53 @@
+package chess;
+
+/*********************************************************************
+Random keys for Zobrist hashing of positions. The hash of a position
+is the exclusive or of the key of every piece on its square and, when
+black is to move, the side key, so it can be updated incrementally as
+pieces are placed and removed. Keys come from a fixed seed so hashes
+are the same from one run to the next and can be stored.
+
+@version March 2013
+*********************************************************************/
+final class Zobrist {
+
+	/** keys for each Position piece number on each square */
+	static final long[][] PIECES = new long[12][64];
+
+	/** key included when black is to move */
+	static final long SIDE;
+
+	static {
+		long seed = 0x2F6B3A9C1D7E5F41L;
+		for (int piece = 0; piece < 12; piece++) {
+			for (int square = 0; square < 64; square++) {
+				seed += 0x9E3779B97F4A7C15L;
+				PIECES[piece][square] = mix(seed);
+			}
+		}
+		seed += 0x9E3779B97F4A7C15L;
+		SIDE = mix(seed);
+	}
+
+/*********************************************************************
+Private constructor, the class only holds static keys.
+
+@param none
+@return none
+*********************************************************************/
+	private Zobrist() {
+	}
+
+/*********************************************************************
+Scrambles a counter into a well distributed random key (the SplitMix64
+finalizer).
+
+@param z the counter value
+@return long the key
+*********************************************************************/
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,524 @@
+package chess.engine;
+
+import java.io.PrintStream;
+
+import chess.CaptureSearch;
+import chess.ChessModel;
+import chess.MoveList;
+import chess.MoveOrder;
+import chess.Moves;
+
+/*********************************************************************
+Chooses a move for the player to move in a ChessModel position. The
+game tree is searched with negamax alpha-beta, one ply deeper on each
+iteration, until a maximum depth is reached, a time limit runs out or
+stop is called. Moves after the first at each node are first tested
+with a null window and only searched in full if they could be better
+(principal variation search). Results are kept in a
+TranspositionTable; the best move it holds for a position is tried
+first and the other moves are ordered by a MoveOrder.
+Scores are in centipawns from the point of view of the player to
+move. A player who is checkmated scores -MATE plus the number of
+plies from the root, so that quicker mates score higher; a player
+with no legal move who is not in check scores 0.
+A Search is used by one thread at a time; stop may be called from
+any thread.
+
+@version March 2013
+*********************************************************************/
+public final class Search {
+
+	/** score of being checkmated at the root */
+	public static final int MATE = 30000;
+
+	/** score above any that a search can return */
+	private static final int INFINITY = 32000;
+
+	/** deepest ply the search can reach */
+	public static final int MAX_PLY = 64;
+
+	/** scores beyond this are mates found within MAX_PLY plies */
+	private static final int MATE_BOUND = MATE - MAX_PLY;
+
+	/** number of nodes searched between checks of the clock */
+	private static final int CHECK_INTERVAL = 1024;
+
+	/* helper n of a Lazy SMP search skips depth d when 
+	 * (d + SKIP_PHASE[n]) / SKIP_SIZE[n] is odd, so that helpers 
+	 * stagger their iterations
+	 */
+
+	/** length of the runs of depths searched and skipped by helpers */
+	private static final int[] SKIP_SIZE = {1, 1, 1, 2, 2, 2, 2, 3, 3, 
+			3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+
+	/** offset of the runs of depths searched and skipped by helpers */
+	private static final int[] SKIP_PHASE = {0, 0, 1, 0, 1, 2, 3, 0, 1, 
+			2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+	/** the table shared with other searches, if any */
+	private final TranspositionTable table;
+
+	/** one move buffer for each ply */
+	private final MoveList[] lists = new MoveList[MAX_PLY];
+
+	/** orders the moves of each ply and learns from cutoffs */
+	private final MoveOrder order = new MoveOrder(MAX_PLY);
+
+	/** searches the captures at the end of each line */
+	private final CaptureSearch captures = new CaptureSearch();
+
+	/** principal variation found below each ply, as packed moves */
+	private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+
+	/** length of the principal variation below each ply */
+	private final int[] pvLength = new int[MAX_PLY];
+
+	/** where iteration results are printed, or null */
+	private PrintStream output;
+
+	/** the position being searched */
+	private ChessModel model;
+
+	/** nodes searched since the search began */
+	private long nodes;
+
+	/** System.nanoTime() at which the search must stop, or 0 */
+	private long deadline;
+
+	/** number of this helper thread in a Lazy SMP search, or 0 */
+	private int helper;
+
+	/** set to abandon the search in progress */
+	private volatile boolean stopped;
+
+/*********************************************************************
+The outcome of a search: the best move found, its score, and the
+moves both players are expected to play after it.
+*********************************************************************/
+	public static final class Result {
+
+		/** the best packed move, or Moves.NONE if there is no move */
+		public final int move;
+
+		/** the score of the best move */
+		public final int score;
+
+		/** the deepest iteration that was completed */
+		public final int depth;
+
+		/** the number of nodes searched */
+		public final long nodes;
+
+		/** the principal variation, starting with the best move */
+		public final int[] pv;
+
+/*********************************************************************
+Constructor method, records the outcome of a search.
+
+@param move the best packed move
+@param score the score of the best move
+@param depth the deepest iteration completed
+@param nodes the number of nodes searched
+@param pv the principal variation
+@return none
+*********************************************************************/
+		Result(int move, int score, int depth, long nodes, int[] pv) {
+			this.move = move;
+			this.score = score;
+			this.depth = depth;
+			this.nodes = nodes;
+			this.pv = pv;
+		}
+
+/*********************************************************************
+Returns the result in the form "depth 6 score 35 nodes 123456 pv e2e4
+e7e5 ...".
+
+@param none
+@return String the result
+*********************************************************************/
+		public String toString() {
+			StringBuilder text = new StringBuilder();
+			text.append("depth ").append(depth);
+			if (score > MATE_BOUND) {
+				text.append(" mate ").append((MATE - score + 1) / 2);
+			}
+			else if (score < -MATE_BOUND) {
+				text.append(" mate ").append(-(MATE + score) / 2);
+			}
+			else {
+				text.append(" score ").append(score);
+			}
+			text.append(" nodes ").append(nodes).append(" pv");
+			for (int move : pv) {
+				text.append(' ').append(Moves.toString(move));
+			}
+			return text.toString();
+		}
+	}
+
+/*********************************************************************
+Constructor method, creates a search that keeps its results in a
+table.
+
+@param table the transposition table, which may be shared with
+		other searches
+@return none
+*********************************************************************/
+	public Search(TranspositionTable table) {
+		this.table = table;
+		for (int i = 0; i < lists.length; i++) {
+			lists[i] = new MoveList();
+		}
+	}
+
+/*********************************************************************
+Sets where the result of each iteration is printed.
+
+@param output the stream to print to, or null to print nothing
+@return none
+*********************************************************************/
+	public void setOutput(PrintStream output) {
+		this.output = output;
+	}
+
+/*********************************************************************
+Searches a position without a time limit.
+
+@param model the position to search, which is returned to its
+		original state afterwards
+@param maxDepth the deepest iteration to search
+@return Result the best move found
+*********************************************************************/
+	public Result search(ChessModel model, int maxDepth) {
+		return search(model, maxDepth, 0);
+	}
+
+/*********************************************************************
+Searches a position by iterative deepening. The search ends after
+maxDepth iterations, when a forced mate is found, when the time limit
+runs out, or when stop is called; the result of the last completed
+iteration is returned.
+
+@param model the position to search, which is returned to its
+		original state afterwards
+@param maxDepth the deepest iteration to search
+@param millis the time limit in milliseconds, or 0 for none
+@return Result the best move found
+@throws IllegalArgumentException if maxDepth is not between 1 and
+		MAX_PLY - 1
+*********************************************************************/
+	public Result search(ChessModel model, int maxDepth, long millis) {
+		table.newSearch();
+		stopped = false;
+		return iterate(model, maxDepth, millis > 0 ? 
+				System.nanoTime() + millis * 1000000 : 0);
+	}
+
+/*********************************************************************
+Runs the iterations of a search. Unlike search, the stop flag is not
+cleared first, so a search stopped before it begins returns at once.
+
+@param model the position to search, which is returned to its
+		original state afterwards
+@param maxDepth the deepest iteration to search
+@param deadline System.nanoTime() at which to stop, or 0 for never
+@return Result the best move found
+@throws IllegalArgumentException if maxDepth is not between 1 and
+		MAX_PLY - 1
+*********************************************************************/
+	Result iterate(ChessModel model, int maxDepth, long deadline) {
+		if (maxDepth < 1 || maxDepth >= MAX_PLY) {
+			throw new IllegalArgumentException(
+					"Depth must be between 1 and " + (MAX_PLY - 1) + ": " +
+					maxDepth);
+		}
+		this.model = model;
+		this.deadline = deadline;
+		nodes = 0;
+		order.clear();
+		
+		// a position without moves has no best move
+		MoveList moves = lists[0];
+		moves.clear();
+		model.generateLegalMoves(moves);
+		if (moves.size() == 0) {
+			return new Result(Moves.NONE, model.inCheck(
+					model.currentPlayer()) ? -MATE : 0, 0, 0, new int[0]);
+		}
+		
+		// any move is better than none if time runs out at once
+		Result result = new Result(moves.get(0), 0, 0, 0, 
+				new int[] {moves.get(0)});
+		
+		// search one ply deeper each time
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			
+			// helpers leave some depths to other threads
+			if (helper > 0 && depth < maxDepth && ((depth + 
+					SKIP_PHASE[helper % SKIP_PHASE.length]) / 
+					SKIP_SIZE[helper % SKIP_SIZE.length]) % 2 != 0) {
+				continue;
+			}
+			int score = negamax(depth, 0, -INFINITY, INFINITY);
+			
+			// an unfinished iteration is discarded
+			if (stopped) {
+				break;
+			}
+			int[] line = new int[pvLength[0]];
+			System.arraycopy(pv[0], 0, line, 0, line.length);
+			result = new Result(line[0], score, depth, nodes, line);
+			if (output != null) {
+				output.println(result);
+			}
+			
+			// nothing changes once a forced mate is found
+			if (Math.abs(score) > MATE_BOUND) {
+				break;
+			}
+		}
+		return new Result(result.move, result.score, result.depth, nodes,
+				result.pv);
+	}
+
+/*********************************************************************
+Makes this search one of the helper threads of a Lazy SMP search 
+(see SmpSearch). Helpers skip some iterations, each in its own 
+pattern, so that the threads spread over several depths at once 
+instead of all searching the same tree.
+
+@param helper the number of the helper, counting from 1, or 0 for
+		the thread that searches every depth
+@return none
+*********************************************************************/
+	void setHelper(int helper) {
+		this.helper = helper;
+	}
+
+/*********************************************************************
+Clears the stop flag before a search is started with iterate.
+
+@param none
+@return none
+*********************************************************************/
+	void reset() {
+		stopped = false;
+	}
+
+/*********************************************************************
+Asks the search in progress to stop as soon as possible. The search
+then returns the result of its last completed iteration.
+
+@param none
+@return none
+*********************************************************************/
+	public void stop() {
+		stopped = true;
+	}
+
+/*********************************************************************
+Returns the number of nodes searched so far by the current or last
+search.
+
+@param none
+@return long the number of nodes
+*********************************************************************/
+	public long nodes() {
+		return nodes;
+	}
+
+/*********************************************************************
+Searches the position below a node with alpha-beta.
+
+@param depth the remaining depth in plies
+@param ply the distance from the root in plies
+@param alpha the score the player to move is already assured of
+@param beta the score the opponent is already assured of
+@return int the score for the player to move, or 0 if stopped
+*********************************************************************/
+	private int negamax(int depth, int ply, int alpha, int beta) {
+		pvLength[ply] = 0;
+		
+		// check the clock every so often
+		if (++nodes % CHECK_INTERVAL == 0 && deadline != 0 &&
+				System.nanoTime() > deadline) {
+			stopped = true;
+		}
+		if (stopped) {
+			return 0;
+		}
+		
+		/* look for a stored result, which can end the search here; 
+		 * nodes with an open window are searched anyway, so that 
+		 * their principal variation is complete
+		 */
+		long key = model.hash();
+		long entry = table.probe(key);
+		int hashMove = TranspositionTable.move(entry);
+		if (entry != 0 && beta - alpha == 1 &&
+				TranspositionTable.depth(entry) >= depth) {
+			int score = fromTable(TranspositionTable.score(entry), ply);
+			int bound = TranspositionTable.bound(entry);
+			if (bound == TranspositionTable.EXACT ||
+					(bound == TranspositionTable.LOWER && score >= beta) ||
+					(bound == TranspositionTable.UPPER && score <= alpha)) {
+				return score;
+			}
+		}
+		
+		// the end of the line is left to the quiescence search
+		boolean check = model.inCheck(model.currentPlayer());
+		if (ply == MAX_PLY - 1) {
+			return evaluate();
+		}
+		if (depth <= 0) {
+			if (check == false) {
+				int score = captures.search(model, alpha, beta);
+				
+				// this node was already counted
+				nodes += captures.nodes() - 1;
+				return score;
+			}
+			
+			// a player in check gets one more ply to escape
+			depth = 1;
+		}
+		
+		// generate the moves of this ply, best first
+		MoveList moves = lists[ply];
+		moves.clear();
+		model.generateOrderedMoves(moves, order, ply, hashMove);
+		
+		// checkmate or stalemate
+		if (moves.size() == 0) {
+			return check ? -MATE + ply : 0;
+		}
+		
+		// search each move
+		int original = alpha;
+		int best = -INFINITY;
+		int bestMove = Moves.NONE;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = order.next(moves, ply, i);
+			model.makeMove(move);
+			
+			/* moves after the first are only tested against alpha, 
+			 * with a null window, and searched again in full if they 
+			 * turn out to be better (principal variation search)
+			 */
+			int score;
+			if (i == 0) {
+				score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+			}
+			else {
+				score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+				if (score > alpha && score < beta && stopped == false) {
+					score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+				}
+			}
+			model.unmakeMove();
+			if (stopped) {
+				return 0;
+			}
+			
+			if (score > best) {
+				best = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					
+					// the line below this move is the new best line
+					pv[ply][0] = move;
+					System.arraycopy(pv[ply + 1], 0, pv[ply], 1,
+							pvLength[ply + 1]);
+					pvLength[ply] = pvLength[ply + 1] + 1;
+					
+					// the opponent will not allow this position
+					if (alpha >= beta) {
+						order.cutoff(model, move, ply, depth);
+						break;
+					}
+				}
+			}
+		}
+		
+		// remember the result for later visits
+		int bound = best >= beta ? TranspositionTable.LOWER :
+				best > original ? TranspositionTable.EXACT :
+				TranspositionTable.UPPER;
+		table.store(key, bestMove, toTable(best, ply), depth, bound);
+		return best;
+	}
+
+/*********************************************************************
+Scores the position statically, for the player to move.
+
+@param none
+@return int the score
+*********************************************************************/
+	private int evaluate() {
+		return model.evaluate();
+	}
+
+/*********************************************************************
+Converts a score to the form kept in the table. Mate scores count
+plies from the root, but the table may be probed at another ply, so
+they are stored counting plies from the node instead.
+
+@param score the score counted from the root
+@param ply the distance of the node from the root
+@return int the score counted from the node
+*********************************************************************/
+	private static int toTable(int score, int ply) {
+		return score > MATE_BOUND ? score + ply :
+				score < -MATE_BOUND ? score - ply : score;
+	}
+
+/*********************************************************************
+Converts a score kept in the table back to a score counted from the
+root.
+
+@param score the score counted from the node
+@param ply the distance of the node from the root
+@return int the score counted from the root
+*********************************************************************/
+	private static int fromTable(int score, int ply) {
+		return score > MATE_BOUND ? score - ply :
+				score < -MATE_BOUND ? score + ply : score;
+	}
+
+/*********************************************************************
+Searches the starting position and prints each iteration.
+Usage: {@code java chess.engine.Search depth [millis] [tableMB]}
+
+@param args the maximum depth, the time limit in milliseconds and the
+		table size in megabytes
+@return none
+*********************************************************************/
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println(
+					"Usage: java chess.engine.Search depth [millis] " +
+					"[tableMB]");
+			System.exit(2);
+		}
+		int depth = Integer.parseInt(args[0]);
+		long millis = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int megabytes = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+		
+		Search search = new Search(new TranspositionTable(megabytes));
+		search.setOutput(System.out);
+		long start = System.nanoTime();
+		ChessModel model = new ChessModel();
+		Result result = search.search(model, depth, millis);
+		long elapsed = System.nanoTime() - start;
+		
+		System.out.println("Best move: " + Moves.toString(result.move));
+		System.out.println("Time: " + elapsed / 1000000 + " ms");
+		System.out.println("Nodes/second: " +
+				(long) (result.nodes * 1e9 / Math.max(elapsed, 1)));
+		System.out.println("Pawn cache: " + model.getPawnCache());
+	}
+}
@@ -0,0 +1,198 @@
+package chess.engine;
+
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.ChessModel;
+import chess.Moves;
+
+/*********************************************************************
+Chooses a move with several threads searching at once ("Lazy SMP").
+Every thread runs its own Search of the same position on a private
+copy of the ChessModel, and the threads share nothing but one
+TranspositionTable. Results stored by one thread cut off and order
+the searches of the others, and helper threads skip some depths so
+that the threads spread over several iterations at a time.
+The first thread searches on the calling thread and decides the
+result. Helpers are not limited to its depth: they keep deepening
+and filling the table until the first thread finishes and stops them.
+
+@version March 2013
+*********************************************************************/
+public final class SmpSearch {
+
+	/** the table shared by all threads */
+	private final TranspositionTable table;
+
+	/** one search for each thread; the first decides the result */
+	private final Search[] searches;
+
+	/** pool running the helper threads, or null if there are none */
+	private final ExecutorService pool;
+
+/*********************************************************************
+Constructor method, creates a search using a number of threads that
+share a table.
+
+@param threads the number of threads to search with
+@param table the transposition table shared by the threads
+@return none
+@throws IllegalArgumentException if threads is less than 1
+*********************************************************************/
+	public SmpSearch(int threads, TranspositionTable table) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"At least one thread is needed: " + threads);
+		}
+		this.table = table;
+		searches = new Search[threads];
+		for (int i = 0; i < threads; i++) {
+			searches[i] = new Search(table);
+			searches[i].setHelper(i);
+		}
+		pool = threads > 1 ? Executors.newFixedThreadPool(threads - 1) :
+				null;
+	}
+
+/*********************************************************************
+Sets where the result of each iteration of the first thread is
+printed.
+
+@param output the stream to print to, or null to print nothing
+@return none
+*********************************************************************/
+	public void setOutput(PrintStream output) {
+		searches[0].setOutput(output);
+	}
+
+/*********************************************************************
+Searches a position with every thread. The search ends when the first
+thread has completed maxDepth iterations or found a forced mate, when
+the time limit runs out, or when stop is called.
+
+@param model the position to search, which is not changed
+@param maxDepth the deepest iteration to search
+@param millis the time limit in milliseconds, or 0 for none
+@return Search.Result the best move found by the first thread, with
+		the nodes searched by all threads
+@throws IllegalArgumentException if maxDepth is not between 1 and
+		Search.MAX_PLY - 1
+*********************************************************************/
+	public Search.Result search(ChessModel model, int maxDepth,
+			long millis) {
+		table.newSearch();
+		long deadline = millis > 0 ? System.nanoTime() +
+				millis * 1000000 : 0;
+		for (Search search : searches) {
+			search.reset();
+		}
+		
+		/* start the helpers, each on its own copy of the position; 
+		 * they search as deep as they can until they are stopped
+		 */
+		Future<?>[] helpers = new Future<?>[searches.length - 1];
+		for (int i = 0; i < helpers.length; i++) {
+			final Search search = searches[i + 1];
+			final ChessModel copy = new ChessModel(model);
+			helpers[i] = pool.submit(new Callable<Search.Result>() {
+				public Search.Result call() {
+					return search.iterate(copy, Search.MAX_PLY - 1, 0);
+				}
+			});
+		}
+		
+		// search on this thread, then stop the helpers
+		Search.Result result;
+		try {
+			result = searches[0].iterate(new ChessModel(model), maxDepth,
+					deadline);
+		}
+		finally {
+			for (int i = 1; i < searches.length; i++) {
+				searches[i].stop();
+			}
+		}
+		
+		// wait for the helpers and add up the nodes of every thread
+		long nodes = result.nodes;
+		for (int i = 0; i < helpers.length; i++) {
+			try {
+				helpers[i].get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e) {
+				throw new IllegalStateException("Helper search failed",
+						e.getCause());
+			}
+			nodes += searches[i + 1].nodes();
+		}
+		return new Search.Result(result.move, result.score, result.depth,
+				nodes, result.pv);
+	}
+
+/*********************************************************************
+Asks the search in progress to stop as soon as possible.
+
+@param none
+@return none
+*********************************************************************/
+	public void stop() {
+		searches[0].stop();
+	}
+
+/*********************************************************************
+Stops the helper threads once searching is finished.
+
+@param none
+@return none
+*********************************************************************/
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+
+/*********************************************************************
+Searches the starting position and prints each iteration of the
+first thread.
+Usage: {@code java chess.engine.SmpSearch depth [threads] [millis]
+[tableMB]}
+
+@param args the maximum depth, the number of threads, the time limit
+		in milliseconds and the table size in megabytes
+@return none
+*********************************************************************/
+	public static void main(String[] args) {
+		if (args.length < 1) {
+			System.err.println("Usage: java chess.engine.SmpSearch " +
+					"depth [threads] [millis] [tableMB]");
+			System.exit(2);
+		}
+		int depth = Integer.parseInt(args[0]);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) :
+				Runtime.getRuntime().availableProcessors();
+		long millis = args.length > 2 ? Long.parseLong(args[2]) : 0;
+		int megabytes = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+		
+		SmpSearch search = new SmpSearch(threads,
+				new TranspositionTable(megabytes));
+		search.setOutput(System.out);
+		long start = System.nanoTime();
+		Search.Result result = search.search(new ChessModel(), depth,
+				millis);
+		long elapsed = System.nanoTime() - start;
+		search.shutdown();
+		
+		System.out.println("Best move: " + Moves.toString(result.move));
+		System.out.println("Threads: " + threads);
+		System.out.println("Time to depth: " + elapsed / 1000000 + " ms");
+		System.out.println("Nodes/second: " +
+				(long) (result.nodes * 1e9 / Math.max(elapsed, 1)));
+	}
+}
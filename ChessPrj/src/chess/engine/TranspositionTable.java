@@ -0,0 +1,220 @@
+package chess.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/*********************************************************************
+Fixed-size transposition table shared by search threads. Entries are
+kept outside the Java heap in direct buffers, so tables of several 
+gigabytes put no pressure on the garbage collector.
+Each entry is two longs: the position key exclusive-ored with the 
+data, then the data itself. Threads read and write entries without 
+locking; a reader recomputes the key from both halves, so an entry
+torn by two threads writing at once simply fails to match and is 
+treated as empty.
+Keys are the Zobrist hashes returned by ChessModel.hash().
+
+@version March 2013
+*********************************************************************/
+public final class TranspositionTable {
+
+	/** bound of an entry whose score is exact */
+	public static final int EXACT = 3;
+
+	/** bound of an entry whose score is at least the stored score */
+	public static final int LOWER = 1;
+
+	/** bound of an entry whose score is at most the stored score */
+	public static final int UPPER = 2;
+
+	/** bytes taken by each entry */
+	private static final int ENTRY_BYTES = 16;
+
+	/** log2 of the number of entries in each buffer (1 GB) */
+	private static final int CHUNK_BITS = 26;
+
+	/** buffers holding the entries */
+	private final ByteBuffer[] chunks;
+
+	/** number of entries minus one, used to mask keys into indexes */
+	private final long mask;
+
+	/** counter stored with entries to tell old searches from new */
+	private int generation;
+
+/*********************************************************************
+Constructor method, allocates a table of at most the given size. The
+number of entries is rounded down to a power of two.
+
+@param megabytes the size of the table in megabytes
+@return none
+@throws IllegalArgumentException if megabytes is less than 1
+*********************************************************************/
+	public TranspositionTable(long megabytes) {
+		if (megabytes < 1) {
+			throw new IllegalArgumentException(
+					"Table size must be at least 1 MB: " + megabytes);
+		}
+		
+		// largest power of two number of entries that fits
+		long entries = Long.highestOneBit((megabytes << 20) / 
+				ENTRY_BYTES);
+		mask = entries - 1;
+		
+		// split the entries over buffers of at most 1 GB
+		long perChunk = Math.min(entries, 1L << CHUNK_BITS);
+		chunks = new ByteBuffer[(int) (entries / perChunk)];
+		for (int i = 0; i < chunks.length; i++) {
+			chunks[i] = ByteBuffer.allocateDirect(
+					(int) (perChunk * ENTRY_BYTES)).order(
+					ByteOrder.nativeOrder());
+		}
+	}
+
+/*********************************************************************
+Looks up a position.
+
+@param key the Zobrist hash of the position
+@return long the packed entry data, or 0 if the position is not 
+		stored; unpack it with move, score, depth and bound
+*********************************************************************/
+	public long probe(long key) {
+		
+		// where the entry lives
+		long index = key & mask;
+		ByteBuffer chunk = chunks[(int) (index >>> CHUNK_BITS)];
+		int offset = (int) (index & ((1L << CHUNK_BITS) - 1)) * 
+				ENTRY_BYTES;
+		
+		// read both halves and check they belong to this key
+		long check = chunk.getLong(offset);
+		long data = chunk.getLong(offset + 8);
+		return (check ^ data) == key ? data : 0;
+	}
+
+/*********************************************************************
+Stores the result of searching a position. An existing entry for 
+another position is replaced unless it was searched deeper during 
+the current search.
+
+@param key the Zobrist hash of the position
+@param move the best packed move found, or Moves.NONE
+@param score the score of the position
+@param depth the depth the position was searched to
+@param bound EXACT, LOWER or UPPER
+@return none
+*********************************************************************/
+	public void store(long key, int move, int score, int depth, 
+			int bound) {
+		
+		// where the entry lives
+		long index = key & mask;
+		ByteBuffer chunk = chunks[(int) (index >>> CHUNK_BITS)];
+		int offset = (int) (index & ((1L << CHUNK_BITS) - 1)) * 
+				ENTRY_BYTES;
+		
+		// keep deeper results of the current search
+		long old = chunk.getLong(offset + 8);
+		if (bound(old) != 0 && (chunk.getLong(offset) ^ old) != key &&
+				generation(old) == generation && depth(old) > depth) {
+			return;
+		}
+		
+		// keep the old best move if none was found this time
+		if (move == 0 && (chunk.getLong(offset) ^ old) == key) {
+			move = move(old);
+		}
+		
+		long data = (move & 0xFFFFL) | (score & 0xFFFFL) << 16 | 
+				(long) (depth & 0xFF) << 32 | (long) bound << 40 | 
+				(long) (generation & 0xFF) << 42;
+		chunk.putLong(offset, key ^ data);
+		chunk.putLong(offset + 8, data);
+	}
+
+/*********************************************************************
+Marks the start of a new search, so that entries left by earlier 
+searches can be replaced first.
+
+@param none
+@return none
+*********************************************************************/
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+
+/*********************************************************************
+Empties the table.
+
+@param none
+@return none
+*********************************************************************/
+	public void clear() {
+		for (ByteBuffer chunk : chunks) {
+			for (int offset = 0; offset < chunk.capacity(); 
+					offset += 8) {
+				chunk.putLong(offset, 0);
+			}
+		}
+	}
+
+/*********************************************************************
+Returns the number of entries in the table.
+
+@param none
+@return long the number of entries
+*********************************************************************/
+	public long entries() {
+		return mask + 1;
+	}
+
+/*********************************************************************
+Unpacks the best move of an entry.
+
+@param data the packed entry data
+@return int the packed move, or Moves.NONE
+*********************************************************************/
+	public static int move(long data) {
+		return (int) (data & 0xFFFF);
+	}
+
+/*********************************************************************
+Unpacks the score of an entry.
+
+@param data the packed entry data
+@return int the score
+*********************************************************************/
+	public static int score(long data) {
+		return (short) (data >>> 16);
+	}
+
+/*********************************************************************
+Unpacks the search depth of an entry.
+
+@param data the packed entry data
+@return int the depth
+*********************************************************************/
+	public static int depth(long data) {
+		return (int) ((data >>> 32) & 0xFF);
+	}
+
+/*********************************************************************
+Unpacks the bound of an entry.
+
+@param data the packed entry data
+@return int EXACT, LOWER, UPPER, or 0 for no entry
+*********************************************************************/
+	public static int bound(long data) {
+		return (int) ((data >>> 40) & 3);
+	}
+
+/*********************************************************************
+Unpacks the generation of an entry.
+
+@param data the packed entry data
+@return int the generation of the search that stored it
+*********************************************************************/
+	private static int generation(long data) {
+		return (int) ((data >>> 42) & 0xFF);
+	}
+}
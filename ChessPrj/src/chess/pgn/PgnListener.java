@@ -0,0 +1,64 @@
+package chess.pgn;
+
+/*********************************************************************
+Receives the games read by a PgnReader as they stream past. The text
+handed to each method is a view of the reader's reusable buffers,
+valid only until the method returns; a listener that keeps it must
+copy it, for example with toString.
+
+@version March 2013
+*********************************************************************/
+public interface PgnListener {
+
+/*********************************************************************
+Called when a game begins, before its headers and moves.
+
+@param offset the position of the game's first byte in the file
+@return none
+*********************************************************************/
+	void startGame(long offset);
+
+/*********************************************************************
+Called for each tag pair of the game's header, such as
+{@code [White "Morphy, Paul"]}. A FEN tag has already been set up on
+the reader's model when this is called.
+
+@param name the tag name
+@param value the tag value, with escapes removed
+@return none
+*********************************************************************/
+	void header(CharSequence name, CharSequence value);
+
+/*********************************************************************
+Called for each move of the game's main line once it has been found
+among the legal moves, just before it is made on the reader's model,
+which still holds the position the move is made from.
+
+@param ply the number of the move within the game, starting at 1
+@param san the move as written in the file
+@param move the packed move (see chess.Moves)
+@return none
+*********************************************************************/
+	void move(int ply, CharSequence san, int move);
+
+/*********************************************************************
+Called when a move cannot be made, or a FEN tag cannot be read. The
+rest of the game's moves are skipped.
+
+@param ply the number of the move within the game, or 0 for a FEN
+		tag
+@param text the move or FEN as written in the file
+@param reason what is wrong with it
+@return none
+*********************************************************************/
+	void error(int ply, CharSequence text, String reason);
+
+/*********************************************************************
+Called when a game ends.
+
+@param result the game termination marker, such as "1-0" or "*", or
+		an empty sequence if the game ended without one
+@return none
+*********************************************************************/
+	void endGame(CharSequence result);
+}
@@ -0,0 +1,606 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+
+import chess.ChessModel;
+import chess.MoveList;
+import chess.Moves;
+
+/*********************************************************************
+Streams the games of a PGN (Portable Game Notation) file through a
+PgnListener, replaying each game's moves on a live ChessModel. The
+file is read through a FileChannel into one fixed buffer, and tag
+names, tag values and moves are collected into reusable char buffers
+that the listener sees as CharSequences, so memory use does not grow
+with the size of the file and no String is made per token. Archives
+of many gigabytes can be read this way.
+Comments, variations, numeric annotations and escape lines are
+skipped; only the main line is played. A move that cannot be made
+is reported to the listener and the rest of its game is skipped. The
+file is read as single-byte characters, which is exact for the ASCII
+that PGN moves and standard tags are written in.
+A reader can be limited to a range of the file, so that several 
+readers can share one archive, each on its own thread and its own 
+part of the file; reads go to absolute positions and leave the 
+channel's own position alone. A reader can read any
+number of ranges, one after another, reusing its buffers.
+
+@version March 2013
+*********************************************************************/
+public final class PgnReader {
+
+	/** number of bytes read from the file at a time */
+	public static final int BUFFER_SIZE = 1 << 16;
+
+	/** longest tag name kept; longer names are cut short */
+	private static final int MAX_NAME = 64;
+
+	/** longest tag value kept; longer values are cut short */
+	private static final int MAX_VALUE = 1024;
+
+	/** longest move kept; longer tokens are cut short */
+	private static final int MAX_TOKEN = 32;
+
+	/** text passed as the result of a game that has none */
+	private static final CharBuffer NO_RESULT = CharBuffer.wrap("");
+
+	/** the file being read */
+	private final FileChannel channel;
+
+	/** position in the file at which reading stops */
+	private long end;
+
+	/** bytes read from the file */
+	private final ByteBuffer buffer;
+
+	/** the array backing buffer */
+	private final byte[] bytes;
+
+	/** position in the file of the first byte in the buffer */
+	private long bufferStart;
+
+	/** index in the buffer of the next byte to read */
+	private int index;
+
+	/** number of bytes in the buffer */
+	private int limit;
+
+	/** the current tag name */
+	private final CharBuffer name = CharBuffer.allocate(MAX_NAME);
+
+	/** the current tag value */
+	private final CharBuffer value = CharBuffer.allocate(MAX_VALUE);
+
+	/** the current move text token */
+	private final CharBuffer token = CharBuffer.allocate(MAX_TOKEN);
+
+	/** the position of the game being read */
+	private final ChessModel model = new ChessModel();
+
+	/** buffer for the legal moves of the position */
+	private final MoveList moves = new MoveList();
+
+	/** number of moves made in the game being read */
+	private int ply;
+
+	/** whether the game being read has reached its move text */
+	private boolean moved;
+
+	/** whether the rest of the game being read is skipped */
+	private boolean failed;
+
+/*********************************************************************
+Constructor method, creates a reader for a file.
+
+@param channel the file to read
+@return none
+*********************************************************************/
+	public PgnReader(FileChannel channel) {
+		this.channel = channel;
+		bytes = new byte[BUFFER_SIZE];
+		buffer = ByteBuffer.wrap(bytes);
+	}
+
+/*********************************************************************
+Returns the model the games are replayed on. During a call to the
+listener it holds the position of the game being read.
+
+@param none
+@return ChessModel the model owned by this reader
+*********************************************************************/
+	public ChessModel model() {
+		return model;
+	}
+
+/*********************************************************************
+Reads all the games of the file, passing each to a listener.
+
+@param listener the listener receiving the games
+@return long the number of games read
+@throws IOException if the file cannot be read
+*********************************************************************/
+	public long read(PgnListener listener) throws IOException {
+		return read(listener, 0, Long.MAX_VALUE);
+	}
+
+/*********************************************************************
+Reads the games within a range of the file, passing each to a 
+listener. Reading stops exactly at the end of the range, so the range
+must start at the beginning of a game, or in blank space or a 
+comment before one, and end where another game begins or at the end 
+of the file, as the parts made by PgnValidator.split do.
+
+@param listener the listener receiving the games
+@param start the position in the file to start reading at
+@param end the position in the file to stop reading at
+@return long the number of games read
+@throws IOException if the file cannot be read
+*********************************************************************/
+	public long read(PgnListener listener, long start, long end) 
+			throws IOException {
+		this.end = end;
+		bufferStart = start;
+		index = 0;
+		limit = 0;
+		
+		long games = 0;
+		boolean inGame = false;
+		
+		// line breaks since the last thing read, 2 for a blank line
+		int lineBreaks = 0;
+		for (int c = peek(); c >= 0; c = peek()) {
+			
+			// things that are not part of any game's main line
+			if (c <= ' ') {
+				if (c == '\n') {
+					lineBreaks++;
+				}
+				index++;
+				continue;
+			}
+			int breaks = lineBreaks;
+			lineBreaks = 0;
+			if (c == ')' || c == '}' || c == ']') {
+				index++;
+				continue;
+			}
+			if (c == '{') {
+				skipPast('}');
+				continue;
+			}
+			if (c == ';' || c == '%') {
+				skipPast('\n');
+				lineBreaks = 1;
+				continue;
+			}
+			if (c == '(') {
+				skipVariation();
+				continue;
+			}
+			if (c == '$') {
+				readToken();
+				continue;
+			}
+			
+			/* a tag after the move text starts the next game, as does
+			 * a tag after a blank line, which ends a game of tags 
+			 * alone
+			 */
+			if (inGame && c == '[' && (moved || breaks > 1)) {
+				listener.endGame(NO_RESULT);
+				inGame = false;
+			}
+			
+			// a game starts with its first tag or move
+			if (inGame == false) {
+				startGame(listener, bufferStart + index);
+				inGame = true;
+				games++;
+			}
+			
+			if (c == '[') {
+				readTag(listener);
+			}
+			else {
+				readToken();
+				moved = true;
+				if (isResult(token)) {
+					listener.endGame(token);
+					inGame = false;
+				}
+				else {
+					play(listener);
+				}
+			}
+		}
+		
+		// the file may end without a result
+		if (inGame) {
+			listener.endGame(NO_RESULT);
+		}
+		return games;
+	}
+
+/*********************************************************************
+Sets up the starting position for a new game.
+
+@param listener the listener receiving the games
+@param offset the position of the game's first byte in the file
+@return none
+*********************************************************************/
+	private void startGame(PgnListener listener, long offset) {
+		model.setFen(ChessModel.START_FEN);
+		ply = 0;
+		moved = false;
+		failed = false;
+		listener.startGame(offset);
+	}
+
+/*********************************************************************
+Reads a tag pair such as {@code [Event "Casual game"]}. A FEN tag
+replaces the starting position.
+
+@param listener the listener receiving the games
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private void readTag(PgnListener listener) throws IOException {
+		index++;
+		skipSpaces();
+		
+		// the name runs up to the value
+		name.clear();
+		for (int c = peek(); c > ' ' && c != '"' && c != ']';
+				c = peek()) {
+			put(name, c);
+			index++;
+		}
+		name.flip();
+		skipSpaces();
+		
+		// the value is quoted, with backslash escapes
+		value.clear();
+		if (peek() == '"') {
+			index++;
+			for (int c = read(); c >= 0 && c != '"'; c = read()) {
+				if (c == '\\') {
+					c = read();
+					if (c < 0) {
+						break;
+					}
+				}
+				put(value, c);
+			}
+		}
+		value.flip();
+		
+		// anything else up to the closing bracket is ignored
+		for (int c = read(); c >= 0 && c != ']' && c != '\n';
+				c = read()) {
+		}
+		
+		if (equals(name, "FEN")) {
+			try {
+				model.setFen(value);
+			}
+			catch (IllegalArgumentException e) {
+				listener.error(0, value, e.getMessage());
+				failed = true;
+			}
+		}
+		listener.header(name, value);
+	}
+
+/*********************************************************************
+Makes the move in the current token, after stripping any move number
+in front of it.
+
+@param listener the listener receiving the games
+@return none
+*********************************************************************/
+	private void play(PgnListener listener) {
+
+		// a move number, "12." or "12...", may run into the move
+		int length = token.length();
+		int i = 0;
+		while (i < length && Character.isDigit(token.charAt(i))) {
+			i++;
+		}
+		if (i == length) {
+			return;
+		}
+		if (token.charAt(i) == '.') {
+			while (i < length && token.charAt(i) == '.') {
+				i++;
+			}
+			if (i == length) {
+				return;
+			}
+			token.position(i);
+		}
+		else if (".!?".indexOf(token.charAt(0)) >= 0) {
+			
+			// stray dots and annotations standing apart from a move
+			return;
+		}
+		if (failed) {
+			return;
+		}
+		
+		// find the move among the legal moves
+		int move = San.parse(model, token, moves);
+		if (move == Moves.NONE) {
+			listener.error(ply + 1, token, San.isCastling(token) ?
+					"castling is not part of these rules" :
+					"illegal or ambiguous move");
+			failed = true;
+			return;
+		}
+		
+		// games can be longer than the undo stack
+		ply++;
+		listener.move(ply, token, move);
+		model.makeMove(move);
+		model.clearUndo();
+	}
+
+/*********************************************************************
+Reads a token of move text, up to blank space or a character that
+starts something else.
+
+@param none
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private void readToken() throws IOException {
+		token.clear();
+		put(token, read());
+		for (int c = peek(); c > ' ' && "{}()[];$".indexOf(c) < 0;
+				c = peek()) {
+			put(token, c);
+			index++;
+		}
+		token.flip();
+	}
+
+/*********************************************************************
+Skips a variation, including the variations and comments inside it.
+
+@param none
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private void skipVariation() throws IOException {
+		int depth = 0;
+		for (int c = read(); c >= 0; c = read()) {
+			if (c == '(') {
+				depth++;
+			}
+			else if (c == ')' && --depth == 0) {
+				return;
+			}
+			else if (c == '{') {
+				skipPast('}');
+			}
+			else if (c == ';') {
+				skipPast('\n');
+			}
+		}
+	}
+
+/*********************************************************************
+Skips up to and including a character.
+
+@param stop the character to stop after
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private void skipPast(int stop) throws IOException {
+		for (int c = read(); c >= 0 && c != stop; c = read()) {
+		}
+	}
+
+/*********************************************************************
+Skips blank space.
+
+@param none
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private void skipSpaces() throws IOException {
+		for (int c = peek(); c >= 0 && c <= ' '; c = peek()) {
+			index++;
+		}
+	}
+
+/*********************************************************************
+Returns the next byte of the file without moving past it, refilling
+the buffer when it runs out. Nothing at or after the end of the range
+being read is returned.
+
+@param none
+@return int the byte, from 0 to 255, or -1 at the end of the range
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private int peek() throws IOException {
+		if (index == limit) {
+			bufferStart += limit;
+			index = 0;
+			buffer.clear();
+			if (end - bufferStart < buffer.capacity()) {
+				buffer.limit((int) Math.max(end - bufferStart, 0));
+			}
+			limit = Math.max(channel.read(buffer, bufferStart), 0);
+			if (limit == 0) {
+				return -1;
+			}
+		}
+		return bytes[index] & 0xFF;
+	}
+
+/*********************************************************************
+Returns the next byte of the file and moves past it.
+
+@param none
+@return int the byte, from 0 to 255, or -1 at the end of the file
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private int read() throws IOException {
+		int c = peek();
+		if (c >= 0) {
+			index++;
+		}
+		return c;
+	}
+
+/*********************************************************************
+Adds a character to a buffer, dropping it if the buffer is full.
+
+@param text the buffer
+@param c the character
+@return none
+*********************************************************************/
+	private static void put(CharBuffer text, int c) {
+		if (text.hasRemaining()) {
+			text.put((char) c);
+		}
+	}
+
+/*********************************************************************
+Returns whether a token is a game termination marker.
+
+@param text the token
+@return boolean true for "1-0", "0-1", "1/2-1/2" or "*"
+*********************************************************************/
+	private static boolean isResult(CharSequence text) {
+		return equals(text, "1-0") || equals(text, "0-1") ||
+				equals(text, "1/2-1/2") || equals(text, "*");
+	}
+
+/*********************************************************************
+Compares a CharSequence with a String without making a String of it.
+
+@param text the sequence
+@param string the string
+@return boolean true if they hold the same characters
+*********************************************************************/
+	private static boolean equals(CharSequence text, String string) {
+		if (text.length() != string.length()) {
+			return false;
+		}
+		for (int i = 0; i < string.length(); i++) {
+			if (text.charAt(i) != string.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+/*********************************************************************
+Listener counting the games, moves and errors of a file, and printing
+each error.
+*********************************************************************/
+	private static final class Counter implements PgnListener {
+
+		/** number of games started */
+		long games;
+
+		/** number of moves made */
+		long plies;
+
+		/** number of games with an error */
+		long errors;
+
+/*********************************************************************
+Counts a game.
+
+@param offset the position of the game in the file
+@return none
+*********************************************************************/
+		public void startGame(long offset) {
+			games++;
+		}
+
+/*********************************************************************
+Ignores a tag pair.
+
+@param name the tag name
+@param value the tag value
+@return none
+*********************************************************************/
+		public void header(CharSequence name, CharSequence value) {
+		}
+
+/*********************************************************************
+Counts a move.
+
+@param ply the number of the move within the game
+@param san the move as written
+@param move the packed move
+@return none
+*********************************************************************/
+		public void move(int ply, CharSequence san, int move) {
+			plies++;
+		}
+
+/*********************************************************************
+Counts and prints an error.
+
+@param ply the number of the move within the game
+@param text the move or FEN as written
+@param reason what is wrong with it
+@return none
+*********************************************************************/
+		public void error(int ply, CharSequence text, String reason) {
+			errors++;
+			System.out.println("Game " + games + ", ply " + ply +
+					", " + text + ": " + reason);
+		}
+
+/*********************************************************************
+Ignores the end of a game.
+
+@param result the game termination marker
+@return none
+*********************************************************************/
+		public void endGame(CharSequence result) {
+		}
+	}
+
+/*********************************************************************
+Reads a PGN file and prints each error, the number of games, moves
+and errors, and how fast the file was read.
+Usage: {@code java chess.pgn.PgnReader file}
+
+@param args the name of the file
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java chess.pgn.PgnReader file");
+			System.exit(2);
+		}
+		RandomAccessFile file = new RandomAccessFile(args[0], "r");
+		try {
+			Counter counter = new Counter();
+			long start = System.nanoTime();
+			new PgnReader(file.getChannel()).read(counter);
+			long elapsed = System.nanoTime() - start;
+			
+			System.out.println("Games: " + counter.games);
+			System.out.println("Moves: " + counter.plies);
+			System.out.println("Errors: " + counter.errors);
+			System.out.println("Time: " + elapsed / 1000000 + " ms");
+			System.out.println("MB/second: " + String.format("%.1f",
+					file.length() * 1e3 / Math.max(elapsed, 1)));
+		}
+		finally {
+			file.close();
+		}
+	}
+}
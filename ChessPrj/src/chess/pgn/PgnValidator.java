@@ -0,0 +1,561 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chess.ChessModel;
+import chess.IChessPiece;
+import chess.Move;
+import chess.Moves;
+
+/*********************************************************************
+Checks every game of a PGN archive on a pool of threads. The archive
+is split at game boundaries into more parts than there are threads,
+and each worker takes parts one at a time, so the threads finish
+together even when some parts hold longer games. A worker reads its
+parts with its own PgnReader, stopping at the end of each part, and
+the games are replayed on the reader's ChessModel, one model per 
+worker. The reader finds the move the text describes among the 
+generated legal moves, and before it is made the worker checks it 
+with ChessModel.isValidMove on the same model.
+Every game gets a Verdict, passed to a Listener as soon as the game
+ends. A bad game names the ply that could not be played and the run
+goes on with the next game. The Report returned at the end adds up
+the games, moves and bad games and gives the games checked per
+second.
+
+@version March 2013
+*********************************************************************/
+public final class PgnValidator {
+
+	/** number of parts the archive is split into for each thread */
+	private static final int PARTS_PER_THREAD = 8;
+
+	/** number of bytes scanned at a time when looking for a game */
+	private static final int SCAN_SIZE = 1 << 12;
+
+	/** number of threads checking games */
+	private final int threads;
+
+	/** pool running the workers */
+	private final ExecutorService pool;
+
+/*********************************************************************
+Receives the verdict of each game. Verdicts come from all the worker
+threads at once, in no particular order, so a listener must be thread
+safe.
+*********************************************************************/
+	public interface Listener {
+
+/*********************************************************************
+Called when a game has been checked.
+
+@param verdict the verdict on the game
+@return none
+*********************************************************************/
+		void verdict(Verdict verdict);
+	}
+
+/*********************************************************************
+The outcome of checking one game. Games are identified by the
+position of their first byte in the file, which stays the same
+however the file is split.
+*********************************************************************/
+	public static final class Verdict {
+
+		/** position of the game's first byte in the file */
+		public final long offset;
+
+		/** number of moves played before the game ended or failed */
+		public final int plies;
+
+		/** the ply that could not be played, 0 for a bad FEN tag, or
+		 * -1 if the game is valid
+		 */
+		public final int badPly;
+
+		/** the move or FEN that could not be played, or null */
+		public final String text;
+
+		/** what is wrong with the game, or null if it is valid */
+		public final String reason;
+
+/*********************************************************************
+Constructor method, creates a verdict.
+
+@param offset the position of the game's first byte in the file
+@param plies the number of moves played
+@param badPly the ply that could not be played, or -1
+@param text the move or FEN that could not be played, or null
+@param reason what is wrong with the game, or null
+@return none
+*********************************************************************/
+		Verdict(long offset, int plies, int badPly, String text,
+				String reason) {
+			this.offset = offset;
+			this.plies = plies;
+			this.badPly = badPly;
+			this.text = text;
+			this.reason = reason;
+		}
+
+/*********************************************************************
+Returns whether every move of the game could be played.
+
+@param none
+@return boolean true for a valid game
+*********************************************************************/
+		public boolean isValid() {
+			return badPly < 0;
+		}
+
+/*********************************************************************
+Returns the verdict as one line of text.
+
+@param none
+@return String the offset, then the number of moves or the problem
+*********************************************************************/
+		public String toString() {
+			return "Game at " + offset + (isValid() ? ": " + plies +
+					" moves" : ", ply " + badPly + ", " + text + ": " +
+					reason);
+		}
+	}
+
+/*********************************************************************
+Totals for a whole run.
+*********************************************************************/
+	public static final class Report {
+
+		/** number of games checked */
+		public final long games;
+
+		/** number of games that could not be played to the end */
+		public final long badGames;
+
+		/** number of moves played */
+		public final long moves;
+
+		/** time taken in nanoseconds */
+		public final long nanos;
+
+/*********************************************************************
+Constructor method, creates a report.
+
+@param games the number of games checked
+@param badGames the number of bad games
+@param moves the number of moves played
+@param nanos the time taken in nanoseconds
+@return none
+*********************************************************************/
+		Report(long games, long badGames, long moves, long nanos) {
+			this.games = games;
+			this.badGames = badGames;
+			this.moves = moves;
+			this.nanos = nanos;
+		}
+
+/*********************************************************************
+Returns the number of games checked per second.
+
+@param none
+@return double the games per second
+*********************************************************************/
+		public double gamesPerSecond() {
+			return games * 1e9 / Math.max(nanos, 1);
+		}
+
+/*********************************************************************
+Returns the totals as text.
+
+@param none
+@return String the totals, time and throughput
+*********************************************************************/
+		public String toString() {
+			return String.format("%d games, %d bad, %d moves, %d ms, " +
+					"%.0f games/second", games, badGames, moves,
+					nanos / 1000000, gamesPerSecond());
+		}
+	}
+
+/*********************************************************************
+Constructor method, creates a validator using a number of threads.
+
+@param threads the number of threads to check games with
+@return none
+@throws IllegalArgumentException if threads is less than 1
+*********************************************************************/
+	public PgnValidator(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"At least one thread is needed: " + threads);
+		}
+		this.threads = threads;
+		pool = Executors.newFixedThreadPool(threads);
+	}
+
+/*********************************************************************
+Checks every game of a file, passing the verdict on each to a
+listener.
+
+@param channel the file to check
+@param listener the listener receiving the verdicts
+@return Report the totals of the run
+@throws IOException if the file cannot be read
+*********************************************************************/
+	public Report validate(FileChannel channel, Listener listener)
+			throws IOException {
+		long start = System.nanoTime();
+		long[] bounds = split(channel, threads * PARTS_PER_THREAD);
+		AtomicInteger next = new AtomicInteger();
+		
+		// start one worker on each thread
+		Worker[] workers = new Worker[threads];
+		Future<?>[] futures = new Future<?>[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker(channel, bounds, next, listener);
+			futures[i] = pool.submit(workers[i]);
+		}
+		
+		// wait for them and add up their counts
+		long games = 0;
+		long badGames = 0;
+		long moves = 0;
+		for (int i = 0; i < threads; i++) {
+			try {
+				futures[i].get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted", e);
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IllegalStateException("Worker failed",
+						e.getCause());
+			}
+			games += workers[i].games;
+			badGames += workers[i].badGames;
+			moves += workers[i].moves;
+		}
+		return new Report(games, badGames, moves,
+				System.nanoTime() - start);
+	}
+
+/*********************************************************************
+Stops the threads of the pool once checking is finished.
+
+@param none
+@return none
+*********************************************************************/
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+/*********************************************************************
+Splits a file into parts that each begin where a game begins, for
+PgnReaders to read side by side. A game begins at a line starting
+with "[" that follows a blank line, as PGN files are written.
+
+@param channel the file to split
+@param parts the number of parts wanted
+@return long[] the starting position of each part, followed by the
+		size of the file; fewer parts are made when games are too few
+		or too long to fill them
+@throws IOException if the file cannot be read
+*********************************************************************/
+	public static long[] split(FileChannel channel, int parts)
+			throws IOException {
+		long size = channel.size();
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+		long[] bounds = new long[parts + 1];
+		int count = 1;
+		for (int i = 1; i < parts; i++) {
+			long from = Math.max(size / parts * i, bounds[count - 1] + 1);
+			long bound = nextGame(channel, from, buffer);
+			if (bound < size) {
+				bounds[count++] = bound;
+			}
+		}
+		bounds[count++] = size;
+		
+		// drop the parts that were not needed
+		long[] result = new long[count];
+		System.arraycopy(bounds, 0, result, 0, count);
+		return result;
+	}
+
+/*********************************************************************
+Finds the first game beginning on a line that starts after a
+position.
+
+@param channel the file being split
+@param from the position to look from
+@param buffer a buffer to read into
+@return long the position of the game, or the size of the file if
+		there is none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private static long nextGame(FileChannel channel, long from,
+			ByteBuffer buffer) throws IOException {
+		
+		/* the line holding from is cut short, so it neither counts as
+		 * blank nor can start a game
+		 */
+		boolean lineStart = false;
+		boolean blank = false;
+		
+		// whether the line before the current one was blank
+		boolean previousBlank = false;
+		
+		for (long position = from; ; ) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				return channel.size();
+			}
+			for (int i = 0; i < read; i++) {
+				byte c = buffer.get(i);
+				if (lineStart && c == '[' && previousBlank) {
+					return position + i;
+				}
+				if (c == '\n') {
+					previousBlank = blank;
+					lineStart = true;
+					blank = true;
+				}
+				else {
+					lineStart = false;
+					if (c > ' ') {
+						blank = false;
+					}
+				}
+			}
+			position += read;
+		}
+	}
+
+/*********************************************************************
+Worker checking the games of the parts it takes, one part at a time.
+It is the PgnListener of its own reader, and checks each move on the
+reader's model.
+*********************************************************************/
+	private static final class Worker implements Callable<Void>,
+			PgnListener {
+
+		/** the file being checked */
+		private final FileChannel channel;
+
+		/** the starting position of each part, then the file size */
+		private final long[] bounds;
+
+		/** the next part to be taken by any worker */
+		private final AtomicInteger next;
+
+		/** the listener receiving the verdicts */
+		private final Listener listener;
+
+		/** the reader of the parts, whose model each move is checked
+		 * on
+		 */
+		private final PgnReader reader;
+
+		/** the move being checked, reused for every move */
+		private final Move check = new Move();
+
+		/** number of games checked */
+		long games;
+
+		/** number of bad games */
+		long badGames;
+
+		/** number of moves played */
+		long moves;
+
+		/** position in the file of the game being checked */
+		private long offset;
+
+		/** number of moves of the game played so far */
+		private int plies;
+
+		/** the ply that could not be played, or -1 */
+		private int badPly;
+
+		/** the move or FEN that could not be played */
+		private String text;
+
+		/** what is wrong with the game */
+		private String reason;
+
+/*********************************************************************
+Constructor method, creates a worker.
+
+@param channel the file to check
+@param bounds the starting position of each part, then the file size
+@param next the counter handing out parts
+@param listener the listener receiving the verdicts
+@return none
+*********************************************************************/
+		Worker(FileChannel channel, long[] bounds, AtomicInteger next,
+				Listener listener) {
+			this.channel = channel;
+			this.bounds = bounds;
+			this.next = next;
+			this.listener = listener;
+			reader = new PgnReader(channel);
+		}
+
+/*********************************************************************
+Checks parts until none are left.
+
+@param none
+@return Void null
+@throws IOException if the file cannot be read
+*********************************************************************/
+		public Void call() throws IOException {
+			for (int part = next.getAndIncrement();
+					part < bounds.length - 1;
+					part = next.getAndIncrement()) {
+				reader.read(this, bounds[part], bounds[part + 1]);
+			}
+			return null;
+		}
+
+/*********************************************************************
+Starts the verdict on a new game.
+
+@param offset the position of the game's first byte in the file
+@return none
+*********************************************************************/
+		public void startGame(long offset) {
+			this.offset = offset;
+			plies = 0;
+			badPly = -1;
+			text = null;
+			reason = null;
+		}
+
+/*********************************************************************
+Ignores a tag pair; a FEN tag is set up, or reported, by the reader.
+
+@param name the tag name
+@param value the tag value
+@return none
+*********************************************************************/
+		public void header(CharSequence name, CharSequence value) {
+		}
+
+/*********************************************************************
+Checks a move found by the reader with isValidMove, on the reader's
+model before the reader makes the move.
+
+@param ply the number of the move within the game
+@param san the move as written
+@param move the packed move
+@return none
+*********************************************************************/
+		public void move(int ply, CharSequence san, int move) {
+			if (badPly >= 0) {
+				return;
+			}
+			
+			// the piece must belong to the player to move
+			ChessModel model = reader.model();
+			check.fromRow = Moves.from(move) >>> 3;
+			check.fromColumn = Moves.from(move) & 7;
+			check.toRow = Moves.to(move) >>> 3;
+			check.toColumn = Moves.to(move) & 7;
+			IChessPiece piece = model.pieceAt(check.fromRow,
+					check.fromColumn);
+			if (piece == null || piece.player() != model.currentPlayer()
+					|| model.isValidMove(check) == false) {
+				error(ply, san, "rejected by isValidMove");
+				return;
+			}
+			plies = ply;
+		}
+
+/*********************************************************************
+Records the first move of the game that could not be played.
+
+@param ply the number of the move within the game, or 0 for a FEN
+@param text the move or FEN as written
+@param reason what is wrong with it
+@return none
+*********************************************************************/
+		public void error(int ply, CharSequence text, String reason) {
+			if (badPly < 0) {
+				badPly = ply;
+				this.text = text.toString();
+				this.reason = reason;
+			}
+		}
+
+/*********************************************************************
+Passes the verdict on the game to the listener.
+
+@param result the game termination marker
+@return none
+*********************************************************************/
+		public void endGame(CharSequence result) {
+			games++;
+			moves += plies;
+			if (badPly >= 0) {
+				badGames++;
+			}
+			listener.verdict(new Verdict(offset, plies, badPly, text,
+					reason));
+		}
+	}
+
+/*********************************************************************
+Checks a PGN file, printing the verdict on each bad game, or on every
+game with -v, followed by the totals.
+Usage: {@code java chess.pgn.PgnValidator file [threads] [-v]}
+
+@param args the name of the file, the number of threads (all
+		processors by default), and -v to print every verdict
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: java chess.pgn.PgnValidator " +
+					"file [threads] [-v]");
+			System.exit(2);
+		}
+		int threads = args.length > 1 && args[1].equals("-v") == false ?
+				Integer.parseInt(args[1]) :
+				Runtime.getRuntime().availableProcessors();
+		final boolean verbose = args[args.length - 1].equals("-v");
+		
+		RandomAccessFile file = new RandomAccessFile(args[0], "r");
+		PgnValidator validator = new PgnValidator(threads);
+		try {
+			Report report = validator.validate(file.getChannel(),
+					new Listener() {
+				public void verdict(Verdict verdict) {
+					if (verbose || verdict.isValid() == false) {
+						System.out.println(verdict);
+					}
+				}
+			});
+			System.out.println("Threads: " + threads);
+			System.out.println(report);
+		}
+		finally {
+			validator.shutdown();
+			file.close();
+		}
+	}
+}
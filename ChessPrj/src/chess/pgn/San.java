@@ -0,0 +1,224 @@
+package chess.pgn;
+
+import chess.ChessModel;
+import chess.MoveList;
+import chess.Moves;
+import chess.PieceKind;
+
+/*********************************************************************
+Converts moves between packed ints (see Moves) and Standard Algebraic
+Notation, as used in PGN files. A SAN move such as "Nbd7", "exd5" or
+"e8=Q+" names the kind of piece moved, its destination and only as
+much of the starting square as is needed to tell it from other legal
+moves. Moves are resolved against the legal moves of a live
+ChessModel, so nothing here allocates. Castling is not part of these
+rules, so "O-O" and "O-O-O" never resolve to a move.
+
+@version March 2013
+*********************************************************************/
+public final class San {
+
+	/** SAN letter of each PieceKind ordinal; pawns have none */
+	private static final String LETTERS = "PNBRQK";
+
+	/** annotation characters that may follow a move */
+	private static final String SUFFIXES = "+#!?";
+
+/*********************************************************************
+Private constructor, the class only holds static methods.
+
+@param none
+@return none
+*********************************************************************/
+	private San() {
+	}
+
+/*********************************************************************
+Finds the legal move a SAN move describes in the current position.
+Check, mate and annotation marks are ignored, a missing promotion is
+taken to be a queen, and the coordinate forms "g1f3" and "g1-f3",
+which give the whole starting square, are also accepted for any kind
+of piece.
+
+@param model the position the move is made from
+@param san the move in SAN
+@param moves a buffer for the legal moves, overwritten
+@return int the packed move, or Moves.NONE if the text is not a
+		move, matches no legal move or matches more than one
+*********************************************************************/
+	public static int parse(ChessModel model, CharSequence san,
+			MoveList moves) {
+		
+		// drop check marks and annotations
+		int end = san.length();
+		while (end > 0 && SUFFIXES.indexOf(san.charAt(end - 1)) >= 0) {
+			end--;
+		}
+		if (end < 2) {
+			return Moves.NONE;
+		}
+		
+		// the kind of piece moved, -1 when no letter is given
+		int kind = LETTERS.indexOf(san.charAt(0));
+		int start = kind >= 0 ? 1 : 0;
+		
+		// the kind a pawn is promoted to, with or without "="
+		int promotion = 0;
+		int letter = LETTERS.indexOf(san.charAt(end - 1));
+		if (letter > 0 && letter != PieceKind.KING.ordinal()) {
+			promotion = letter;
+			end--;
+			if (end > 0 && san.charAt(end - 1) == '=') {
+				end--;
+			}
+		}
+		
+		// the destination square ends the move
+		if (end - start < 2) {
+			return Moves.NONE;
+		}
+		int toColumn = san.charAt(end - 2) - 'a';
+		int toRow = '8' - san.charAt(end - 1);
+		if (toColumn < 0 || toColumn > 7 || toRow < 0 || toRow > 7) {
+			return Moves.NONE;
+		}
+		int to = toRow * 8 + toColumn;
+		end -= 2;
+		
+		// whatever comes before it narrows down the starting square
+		int fromColumn = -1;
+		int fromRow = -1;
+		for (int i = start; i < end; i++) {
+			char c = san.charAt(i);
+			if (c >= 'a' && c <= 'h') {
+				fromColumn = c - 'a';
+			}
+			else if (c >= '1' && c <= '8') {
+				fromRow = '8' - c;
+			}
+			else if (c != 'x' && c != ':' && c != '-') {
+				return Moves.NONE;
+			}
+		}
+		
+		/* without a letter the move is a pawn's, unless it gives the
+		 * whole starting square, as in "g1f3"
+		 */
+		if (kind < 0 && (fromColumn < 0 || fromRow < 0)) {
+			kind = PieceKind.PAWN.ordinal();
+		}
+		
+		// exactly one legal move to the square must fit the description
+		moves.clear();
+		model.generateLegalMoves(moves, to);
+		int found = Moves.NONE;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			int from = Moves.from(move);
+			if ((fromColumn >= 0 && (from & 7) != fromColumn) ||
+					(fromRow >= 0 && (from >>> 3) != fromRow) ||
+					(kind >= 0 && model.pieceAt(from >>> 3, from & 7).kind()
+					.ordinal() != kind)) {
+				continue;
+			}
+			
+			// a pawn reaching the last row promotes to a queen by default
+			int kindTo = Moves.promotion(move);
+			if (kindTo != promotion && (promotion != 0 ||
+					kindTo != PieceKind.QUEEN.ordinal())) {
+				continue;
+			}
+			if (found != Moves.NONE) {
+				return Moves.NONE;
+			}
+			found = move;
+		}
+		return found;
+	}
+
+/*********************************************************************
+Returns whether a SAN move is castling, which these rules do not
+have, so that a reader can report it as such rather than as an
+illegal move.
+
+@param san the move in SAN
+@return boolean true for "O-O" or "O-O-O", with letter O or digit 0
+*********************************************************************/
+	public static boolean isCastling(CharSequence san) {
+		return san.length() >= 3 &&
+				(san.charAt(0) == 'O' || san.charAt(0) == '0') &&
+				san.charAt(1) == '-' && san.charAt(2) == san.charAt(0);
+	}
+
+/*********************************************************************
+Appends a legal move in SAN, with a "+" or "#" mark when it gives
+check or mate. The move is made and taken back on the model to find
+out.
+
+@param model the position the move is made from
+@param move the packed legal move
+@param moves a buffer for the legal moves, overwritten
+@param text where the move is appended
+@return none
+*********************************************************************/
+	public static void append(ChessModel model, int move,
+			MoveList moves, StringBuilder text) {
+		int from = Moves.from(move);
+		int to = Moves.to(move);
+		int kind = model.pieceAt(from >>> 3, from & 7).kind().ordinal();
+		boolean capture = model.pieceAt(to >>> 3, to & 7) != null;
+		
+		if (kind == PieceKind.PAWN.ordinal()) {
+			
+			// pawn captures name the column the pawn left
+			if (capture) {
+				text.append((char) ('a' + (from & 7)));
+			}
+		}
+		else {
+			
+			/* look for other pieces of the same kind that can reach
+			 * the same square, and tell them apart by column, then row
+			 */
+			text.append(LETTERS.charAt(kind));
+			moves.clear();
+			model.generateLegalMoves(moves, to);
+			boolean others = false;
+			boolean sameColumn = false;
+			boolean sameRow = false;
+			for (int i = 0; i < moves.size(); i++) {
+				int other = Moves.from(moves.get(i));
+				if (other != from &&
+						model.pieceAt(other >>> 3, other & 7).kind()
+						.ordinal() == kind) {
+					others = true;
+					sameColumn |= (other & 7) == (from & 7);
+					sameRow |= (other >>> 3) == (from >>> 3);
+				}
+			}
+			if (others && (sameColumn == false || sameRow)) {
+				text.append((char) ('a' + (from & 7)));
+			}
+			if (sameColumn) {
+				text.append((char) ('8' - (from >>> 3)));
+			}
+		}
+		
+		// the capture mark, destination and promotion
+		if (capture) {
+			text.append('x');
+		}
+		text.append((char) ('a' + (to & 7)));
+		text.append((char) ('8' - (to >>> 3)));
+		if (Moves.promotion(move) != 0) {
+			text.append('=').append(LETTERS.charAt(Moves.promotion(move)));
+		}
+		
+		// check and mate marks
+		model.makeMove(move);
+		if (model.inCheck(model.currentPlayer())) {
+			text.append(model.isComplete() ? '#' : '+');
+		}
+		model.unmakeMove();
+	}
+}
@@ -0,0 +1,295 @@
+package chess.record;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import chess.ChessModel;
+import chess.MoveList;
+import chess.Moves;
+
+/*********************************************************************
+Reads games written by GameWriter, in the format described in
+GameRecord. nextGame reads the next game into the reader, and the
+game is then rebuilt on a ChessModel, either all at once with replay
+or a move at a time with setUp and nextMove, which lets the caller
+look at every position on the way. The move bytes are kept in an
+array that grows with the longest game read, so reading does not
+allocate per move.
+
+@version March 2013
+*********************************************************************/
+public final class GameReader implements Closeable {
+
+	/** where the games are read from */
+	private final InputStream in;
+
+	/** buffer for the legal moves of the position */
+	private final MoveList moves = new MoveList();
+
+	/** the move index of each ply of the game */
+	private byte[] plies = new byte[256];
+
+	/** number of plies of the game */
+	private int count;
+
+	/** the ply nextMove decodes next */
+	private int cursor;
+
+	/** the result of the game */
+	private int result;
+
+	/** the starting position of the game in FEN */
+	private String fen;
+
+	/** number of the game, counting from 0, or -1 before the first */
+	private long game = -1;
+
+/*********************************************************************
+Constructor method, creates a reader and checks the file header.
+
+@param in where the games are read from; it is buffered by the reader
+@return none
+@throws IOException if the header cannot be read or is not that of a
+		record file of this version
+*********************************************************************/
+	public GameReader(InputStream in) throws IOException {
+		this.in = new BufferedInputStream(in);
+		for (int i = 0; i < GameRecord.MAGIC.length; i++) {
+			if (this.in.read() != GameRecord.MAGIC[i]) {
+				throw new IOException("Not a game record file");
+			}
+		}
+		int version = this.in.read();
+		if (version != GameRecord.FORMAT_VERSION) {
+			throw new IOException("Unsupported game record version: " +
+					version);
+		}
+	}
+
+/*********************************************************************
+Reads the next game.
+
+@param none
+@return boolean true if a game was read, false at the end of the file
+@throws IOException if the game cannot be read or is cut short
+*********************************************************************/
+	public boolean nextGame() throws IOException {
+		int first = in.read();
+		if (first < 0) {
+			return false;
+		}
+		
+		// the header: plies, flags, then the starting position
+		count = readNumber(first);
+		int flags = readByte();
+		result = flags & 3;
+		fen = ChessModel.START_FEN;
+		if ((flags & GameRecord.FEN_FLAG) != 0) {
+			char[] text = new char[readNumber(readByte())];
+			for (int i = 0; i < text.length; i++) {
+				text[i] = (char) readByte();
+			}
+			fen = new String(text);
+		}
+		
+		// one byte per ply
+		if (count > plies.length) {
+			plies = new byte[Math.max(count, plies.length * 2)];
+		}
+		for (int read = 0; read < count; ) {
+			int n = in.read(plies, read, count - read);
+			if (n < 0) {
+				throw new EOFException("Game record cut short");
+			}
+			read += n;
+		}
+		cursor = 0;
+		game++;
+		return true;
+	}
+
+/*********************************************************************
+Returns the number of the game last read, counting from 0 at the
+start of the file.
+
+@param none
+@return long the game number
+*********************************************************************/
+	public long gameNumber() {
+		return game;
+	}
+
+/*********************************************************************
+Returns the number of plies of the game last read.
+
+@param none
+@return int the number of plies
+*********************************************************************/
+	public int plies() {
+		return count;
+	}
+
+/*********************************************************************
+Returns the result of the game last read.
+
+@param none
+@return int the result, from GameRecord.UNKNOWN to GameRecord.DRAW
+*********************************************************************/
+	public int result() {
+		return result;
+	}
+
+/*********************************************************************
+Returns the starting position of the game last read.
+
+@param none
+@return String the position in FEN
+*********************************************************************/
+	public String startFen() {
+		return fen;
+	}
+
+/*********************************************************************
+Sets a model to the starting position of the game last read, so that
+its moves can be taken with nextMove.
+
+@param model the model to set up
+@return none
+*********************************************************************/
+	public void setUp(ChessModel model) {
+		model.setFen(fen);
+		cursor = 0;
+	}
+
+/*********************************************************************
+Returns the next move of the game, without making it. The model must
+be in the position the move is made from: set up with setUp, with
+every move returned so far made on it.
+
+@param model the position the move is made from
+@return int the packed move, or Moves.NONE after the last move
+@throws IOException if the move index is not that of a legal move,
+		because the file is corrupt or the model is in the wrong
+		position
+*********************************************************************/
+	public int nextMove(ChessModel model) throws IOException {
+		if (cursor == count) {
+			return Moves.NONE;
+		}
+		moves.clear();
+		model.generateLegalMoves(moves);
+		int index = plies[cursor] & 0xFF;
+		if (index >= moves.size()) {
+			throw new IOException("Bad move index " + index + " at ply " +
+					(cursor + 1) + " of game " + game);
+		}
+		cursor++;
+		return moves.get(index);
+	}
+
+/*********************************************************************
+Rebuilds the game last read on a model, leaving it in the final
+position. Up to ChessModel.UNDO_CAPACITY of the latest moves can be 
+taken back, as older ones are dropped from the undo stack.
+
+@param model the model to rebuild the game on
+@return none
+@throws IOException if a move index is not that of a legal move
+*********************************************************************/
+	public void replay(ChessModel model) throws IOException {
+		setUp(model);
+		for (int move = nextMove(model); move != Moves.NONE;
+				move = nextMove(model)) {
+			model.makeMove(move);
+		}
+	}
+
+/*********************************************************************
+Reads a number written seven bits at a time, lowest first.
+
+@param first the first byte of the number, already read
+@return int the number
+@throws IOException if the number is cut short or too long
+*********************************************************************/
+	private int readNumber(int first) throws IOException {
+		int number = first & 0x7F;
+		for (int shift = 7; (first & 0x80) != 0; shift += 7) {
+			if (shift > 28) {
+				throw new IOException("Bad number in game record");
+			}
+			first = readByte();
+			number |= (first & 0x7F) << shift;
+		}
+		if (number < 0) {
+			throw new IOException("Bad number in game record");
+		}
+		return number;
+	}
+
+/*********************************************************************
+Reads a byte that must be there.
+
+@param none
+@return int the byte, from 0 to 255
+@throws IOException if the file ends
+*********************************************************************/
+	private int readByte() throws IOException {
+		int b = in.read();
+		if (b < 0) {
+			throw new EOFException("Game record cut short");
+		}
+		return b;
+	}
+
+/*********************************************************************
+Closes the stream.
+
+@param none
+@return none
+@throws IOException if it cannot be closed
+*********************************************************************/
+	public void close() throws IOException {
+		in.close();
+	}
+
+/*********************************************************************
+Replays every game of a record file and prints the number of games
+and moves and how fast they were rebuilt.
+Usage: {@code java chess.record.GameReader file.cgr}
+
+@param args the name of the record file
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java chess.record.GameReader " +
+					"file.cgr");
+			System.exit(2);
+		}
+		GameReader reader = new GameReader(new FileInputStream(args[0]));
+		try {
+			ChessModel model = new ChessModel();
+			long moves = 0;
+			long start = System.nanoTime();
+			while (reader.nextGame()) {
+				reader.replay(model);
+				moves += reader.plies();
+			}
+			long elapsed = System.nanoTime() - start;
+			
+			System.out.println("Games: " + (reader.gameNumber() + 1));
+			System.out.println("Moves: " + moves);
+			System.out.println("Time: " + elapsed / 1000000 + " ms");
+			System.out.println("Moves/second: " +
+					(long) (moves * 1e9 / Math.max(elapsed, 1)));
+		}
+		finally {
+			reader.close();
+		}
+	}
+}
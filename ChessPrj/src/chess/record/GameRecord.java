@@ -0,0 +1,85 @@
+package chess.record;
+
+/*********************************************************************
+Constants of the compact binary game record format, written by
+GameWriter and read by GameReader. A file starts with the four bytes
+"CGR" and FORMAT_VERSION, followed by the games one after another.
+Each game is
+	the number of plies, as a variable length number,
+	a flags byte holding the result in its low two bits and FEN_FLAG,
+	if FEN_FLAG is set, the length of the starting position in FEN
+		as a variable length number, then its ASCII characters,
+	one byte per ply, the index of the move in the list of legal moves
+		generated by ChessModel.generateLegalMoves(MoveList) for the
+		position it was made from.
+A move index fits in a byte, as no position has more than 218 legal
+moves, and a typical game takes one byte more than it has plies.
+Variable length numbers are written seven bits at a time, lowest
+first, with the top bit set on every byte but the last. The move
+order of the generator is part of the format, so it must not change
+without changing FORMAT_VERSION.
+
+@version March 2013
+*********************************************************************/
+public final class GameRecord {
+
+	/** the bytes every record file starts with */
+	static final byte[] MAGIC = {'C', 'G', 'R'};
+
+	/** version of the format, written after MAGIC */
+	static final int FORMAT_VERSION = 1;
+
+	/** flag set when a game does not start from the usual position */
+	static final int FEN_FLAG = 4;
+
+	/** result of a game that is unfinished or unknown */
+	public static final int UNKNOWN = 0;
+
+	/** result of a game won by white */
+	public static final int WHITE_WINS = 1;
+
+	/** result of a game won by black */
+	public static final int BLACK_WINS = 2;
+
+	/** result of a drawn game */
+	public static final int DRAW = 3;
+
+	/** PGN termination marker of each result */
+	private static final String[] MARKERS = {"*", "1-0", "0-1",
+			"1/2-1/2"};
+
+/*********************************************************************
+Private constructor, the class only holds constants and static
+methods.
+
+@param none
+@return none
+*********************************************************************/
+	private GameRecord() {
+	}
+
+/*********************************************************************
+Returns the result of a PGN game termination marker.
+
+@param marker the marker, such as "1-0"
+@return int the result, UNKNOWN for "*" or anything unrecognised
+*********************************************************************/
+	public static int resultOf(CharSequence marker) {
+		for (int result = 1; result < MARKERS.length; result++) {
+			if (MARKERS[result].contentEquals(marker)) {
+				return result;
+			}
+		}
+		return UNKNOWN;
+	}
+
+/*********************************************************************
+Returns the PGN game termination marker of a result.
+
+@param result the result, from UNKNOWN to DRAW
+@return String the marker, such as "1-0"
+*********************************************************************/
+	public static String marker(int result) {
+		return MARKERS[result & 3];
+	}
+}
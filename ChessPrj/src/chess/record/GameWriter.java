@@ -0,0 +1,305 @@
+package chess.record;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+
+import chess.ChessModel;
+import chess.MoveList;
+import chess.Moves;
+import chess.PieceKind;
+import chess.pgn.PgnListener;
+import chess.pgn.PgnReader;
+
+/*********************************************************************
+Writes games in the compact binary format described in GameRecord.
+A game is begun with startGame, its moves are added one at a time
+with addMove, and endGame writes it out. The writer replays the game
+on its own ChessModel to find the index of each move among the legal
+moves, so the moves only need to be legal; their capture flags are
+not needed. Moves are kept in a byte array that grows with the
+longest game written, so writing does not allocate per move.
+
+@version March 2013
+*********************************************************************/
+public final class GameWriter implements Closeable {
+
+	/** where the games are written */
+	private final OutputStream out;
+
+	/** the position of the game being written */
+	private final ChessModel model = new ChessModel();
+
+	/** buffer for the legal moves of the position */
+	private final MoveList moves = new MoveList();
+
+	/** the starting position of the game, or null for the usual one */
+	private String fen;
+
+	/** the move index of each ply of the game */
+	private byte[] plies = new byte[256];
+
+	/** number of plies of the game, or -1 if no game is begun */
+	private int count = -1;
+
+	/** number of games written */
+	private long games;
+
+/*********************************************************************
+Constructor method, creates a writer and writes the file header.
+
+@param out where the games are written; it is buffered by the writer
+@return none
+@throws IOException if the header cannot be written
+*********************************************************************/
+	public GameWriter(OutputStream out) throws IOException {
+		this.out = new BufferedOutputStream(out);
+		this.out.write(GameRecord.MAGIC);
+		this.out.write(GameRecord.FORMAT_VERSION);
+	}
+
+/*********************************************************************
+Begins a game, dropping any game begun and not ended.
+
+@param fen the starting position in FEN, or null for the usual
+		starting position
+@return none
+@throws IllegalArgumentException if the FEN is malformed
+*********************************************************************/
+	public void startGame(CharSequence fen) {
+		if (fen == null || ChessModel.START_FEN.contentEquals(fen)) {
+			this.fen = null;
+			model.setFen(ChessModel.START_FEN);
+		}
+		else {
+			this.fen = fen.toString();
+			model.setFen(fen);
+		}
+		count = 0;
+	}
+
+/*********************************************************************
+Adds the next move of the game. A move without a promotion kind that
+takes a pawn to the last row is a promotion to a queen, as in
+ChessModel.makeMove.
+
+@param move the packed move (see Moves)
+@return none
+@throws IllegalArgumentException if the move is not legal
+@throws IllegalStateException if no game is begun
+*********************************************************************/
+	public void addMove(int move) {
+		if (count < 0) {
+			throw new IllegalStateException("No game is begun");
+		}
+		
+		// find the move among the legal moves
+		moves.clear();
+		model.generateLegalMoves(moves);
+		int index = -1;
+		int promotion = Moves.promotion(move) != 0 ? 
+				Moves.promotion(move) : PieceKind.QUEEN.ordinal();
+		for (int i = 0; i < moves.size() && index < 0; i++) {
+			int legal = moves.get(i);
+			if (Moves.from(legal) == Moves.from(move) &&
+					Moves.to(legal) == Moves.to(move) &&
+					(Moves.promotion(legal) == 0 ||
+					Moves.promotion(legal) == promotion)) {
+				index = i;
+			}
+		}
+		if (index < 0) {
+			throw new IllegalArgumentException("Illegal move: " +
+					Moves.toString(move));
+		}
+		
+		// record the index and play the move
+		if (count == plies.length) {
+			byte[] larger = new byte[count * 2];
+			System.arraycopy(plies, 0, larger, 0, count);
+			plies = larger;
+		}
+		plies[count++] = (byte) index;
+		model.makeMove(moves.get(index));
+		model.clearUndo();
+	}
+
+/*********************************************************************
+Ends the game and writes it out.
+
+@param result the result, from GameRecord.UNKNOWN to GameRecord.DRAW
+@return none
+@throws IOException if the game cannot be written
+@throws IllegalStateException if no game is begun
+*********************************************************************/
+	public void endGame(int result) throws IOException {
+		if (count < 0) {
+			throw new IllegalStateException("No game is begun");
+		}
+		
+		// the header: plies, flags, then the starting position
+		writeNumber(count);
+		out.write((result & 3) | (fen != null ? GameRecord.FEN_FLAG : 0));
+		if (fen != null) {
+			writeNumber(fen.length());
+			for (int i = 0; i < fen.length(); i++) {
+				out.write(fen.charAt(i));
+			}
+		}
+		
+		// one byte per ply
+		out.write(plies, 0, count);
+		count = -1;
+		games++;
+	}
+
+/*********************************************************************
+Writes a number seven bits at a time, lowest first.
+
+@param number the number, not negative
+@return none
+@throws IOException if it cannot be written
+*********************************************************************/
+	private void writeNumber(int number) throws IOException {
+		while (number >= 0x80) {
+			out.write(number & 0x7F | 0x80);
+			number >>>= 7;
+		}
+		out.write(number);
+	}
+
+/*********************************************************************
+Returns the number of games written.
+
+@param none
+@return long the number of games
+*********************************************************************/
+	public long games() {
+		return games;
+	}
+
+/*********************************************************************
+Writes out anything buffered, without closing the stream.
+
+@param none
+@return none
+@throws IOException if it cannot be written
+*********************************************************************/
+	public void flush() throws IOException {
+		out.flush();
+	}
+
+/*********************************************************************
+Writes out anything buffered and closes the stream. A game begun and
+not ended is dropped.
+
+@param none
+@return none
+@throws IOException if it cannot be written
+*********************************************************************/
+	public void close() throws IOException {
+		out.close();
+	}
+
+/*********************************************************************
+Converts a PGN file into a record file, skipping games that cannot
+be played, and prints the sizes of both files.
+Usage: {@code java chess.record.GameWriter in.pgn out.cgr}
+
+@param args the names of the PGN file and the record file
+@return none
+@throws IOException if a file cannot be read or written
+*********************************************************************/
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: java chess.record.GameWriter " +
+					"in.pgn out.cgr");
+			System.exit(2);
+		}
+		RandomAccessFile pgn = new RandomAccessFile(args[0], "r");
+		final GameWriter writer = new GameWriter(
+				new FileOutputStream(args[1]));
+		final long[] skipped = new long[1];
+		try {
+			long start = System.nanoTime();
+			new PgnReader(pgn.getChannel()).read(new PgnListener() {
+				
+				/** the starting position of the game, or null */
+				private String fen;
+				
+				/** whether the game is begun on the writer */
+				private boolean started;
+				
+				/** whether a move of the game could not be played */
+				private boolean failed;
+				
+				public void startGame(long offset) {
+					fen = null;
+					started = false;
+					failed = false;
+				}
+				
+				public void header(CharSequence name,
+						CharSequence value) {
+					if ("FEN".contentEquals(name)) {
+						fen = value.toString();
+					}
+				}
+				
+				public void move(int ply, CharSequence san, int move) {
+					begin();
+					writer.addMove(move);
+				}
+				
+				public void error(int ply, CharSequence text,
+						String reason) {
+					failed = true;
+				}
+				
+				public void endGame(CharSequence result) {
+					if (failed) {
+						skipped[0]++;
+						return;
+					}
+					try {
+						begin();
+						writer.endGame(GameRecord.resultOf(result));
+					}
+					catch (IOException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+				
+				/** begins the game on the writer once the FEN is known,
+				 * dropping what is left of a skipped game
+				 */
+				private void begin() {
+					if (started == false) {
+						writer.startGame(fen);
+						started = true;
+					}
+				}
+			});
+			writer.flush();
+			long elapsed = System.nanoTime() - start;
+			
+			long pgnBytes = pgn.length();
+			long recordBytes = new File(args[1]).length();
+			System.out.println("Games: " + writer.games());
+			System.out.println("Skipped: " + skipped[0]);
+			System.out.println("PGN bytes: " + pgnBytes);
+			System.out.println("Record bytes: " + recordBytes);
+			System.out.println(String.format("Ratio: %.1f",
+					(double) pgnBytes / Math.max(recordBytes, 1)));
+			System.out.println("Time: " + elapsed / 1000000 + " ms");
+		}
+		finally {
+			writer.close();
+			pgn.close();
+		}
+	}
+}
@@ -0,0 +1,376 @@
+package chess.record;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import chess.ChessModel;
+import chess.Moves;
+
+/*********************************************************************
+On-disk index of the positions reached in a collection of games,
+answering "which games reached this position, and what was played
+next" without reading the games. The index file, written by
+PositionIndexBuilder, is a header followed by 16-byte entries sorted
+by position hash (ChessModel.hash, compared as signed longs):
+	the hash, 8 bytes,
+	the game number in its record file, 4 bytes,
+	the ply, the number of moves made before the position, 2 bytes,
+	the packed move played next, or Moves.NONE, 2 bytes.
+The file is memory mapped in segments of at most 1 GB, so only the
+pages that lookups touch are read, and the index can be far larger
+than the Java heap. On opening, the first hash of every block of
+FENCE_ENTRIES entries is copied into a fence array on the heap; a
+lookup binary searches the fences, then the one or two blocks they
+point to, touching only a few pages of the file. A position hash is
+64 bits, so an entry of another position with the same hash is
+possible, though rare.
+An index is read only and can be used by many threads at once.
+
+@version March 2013
+*********************************************************************/
+public final class PositionIndex implements Closeable {
+
+	/** bytes taken by each entry, and by the header */
+	public static final int ENTRY_BYTES = 16;
+
+	/** number of entries between fence pointers */
+	public static final int FENCE_ENTRIES = 1024;
+
+	/** the bytes every index file starts with */
+	private static final int MAGIC = 'C' << 24 | 'P' << 16 | 'I' << 8 |
+			'X';
+
+	/** version of the format, written after MAGIC */
+	private static final int FORMAT_VERSION = 1;
+
+	/** log2 of the number of bytes in each mapped segment (1 GB) */
+	private static final int SEGMENT_BITS = 30;
+
+	/** the open index file */
+	private final RandomAccessFile file;
+
+	/** the mapped segments of the file */
+	private final ByteBuffer[] segments;
+
+	/** number of entries */
+	private final long size;
+
+	/** hash of the first entry of each block */
+	private final long[] fences;
+
+/*********************************************************************
+Constructor method, opens and maps an index file.
+
+@param index the index file
+@return none
+@throws IOException if the file cannot be read or is not an index
+		file of this version
+*********************************************************************/
+	public PositionIndex(File index) throws IOException {
+		file = new RandomAccessFile(index, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			
+			// check the header
+			ByteBuffer header = ByteBuffer.allocate(ENTRY_BYTES);
+			while (header.hasRemaining() &&
+					channel.read(header, header.position()) >= 0) {
+			}
+			header.flip();
+			if (header.remaining() < ENTRY_BYTES ||
+					header.getInt() != MAGIC) {
+				throw new IOException("Not a position index file");
+			}
+			int version = header.getInt();
+			if (version != FORMAT_VERSION) {
+				throw new IOException(
+						"Unsupported position index version: " + version);
+			}
+			size = header.getLong();
+			long length = (size + 1) * ENTRY_BYTES;
+			if (size < 0 || channel.size() < length) {
+				throw new IOException("Position index cut short");
+			}
+			
+			// map the file a segment at a time
+			long perSegment = 1L << SEGMENT_BITS;
+			segments = new ByteBuffer[(int) ((length + perSegment - 1) /
+					perSegment)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = i * perSegment;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+						start, Math.min(perSegment, length - start));
+			}
+			
+			// the first hash of each block
+			fences = new long[(int) ((size + FENCE_ENTRIES - 1) /
+					FENCE_ENTRIES)];
+			for (int i = 0; i < fences.length; i++) {
+				fences[i] = hash((long) i * FENCE_ENTRIES);
+			}
+		}
+		catch (IOException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+/*********************************************************************
+Packs the game number, ply and next move of an entry into a long, as
+they are stored after the hash.
+
+@param game the game number
+@param ply the ply, up to 65535
+@param move the packed move played next, or Moves.NONE
+@return long the packed data
+*********************************************************************/
+	static long pack(int game, int ply, int move) {
+		return (long) game << 32 | (ply & 0xFFFFL) << 16 | move & 0xFFFF;
+	}
+
+/*********************************************************************
+Puts the header of an index file into a buffer.
+
+@param buffer the buffer the header is put into
+@param size the number of entries in the index
+@return none
+*********************************************************************/
+	static void writeHeader(ByteBuffer buffer, long size) {
+		buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(size);
+	}
+
+/*********************************************************************
+Returns the number of entries in the index.
+
+@param none
+@return long the number of entries
+*********************************************************************/
+	public long size() {
+		return size;
+	}
+
+/*********************************************************************
+Finds the first entry of the current position of a model.
+
+@param model the position looked up
+@return long the number of the first entry, or -1 if the position
+		is not in the index
+*********************************************************************/
+	public long find(ChessModel model) {
+		return find(model.hash());
+	}
+
+/*********************************************************************
+Finds the first entry of a position hash. The entries of the
+position follow it, up to the first entry with another hash; count
+gives their number.
+
+@param hash the hash of the position
+@return long the number of the first entry, or -1 if the hash is not
+		in the index
+*********************************************************************/
+	public long find(long hash) {
+		long first = lowerBound(hash);
+		return first < size && hash(first) == hash ? first : -1;
+	}
+
+/*********************************************************************
+Returns the number of entries of the current position of a model,
+the number of times the position was reached in the games.
+
+@param model the position looked up
+@return long the number of entries
+*********************************************************************/
+	public long count(ChessModel model) {
+		long hash = model.hash();
+		long first = find(hash);
+		if (first < 0) {
+			return 0;
+		}
+		long last = first;
+		while (last < size && hash(last) == hash) {
+			last++;
+		}
+		return last - first;
+	}
+
+/*********************************************************************
+Returns the position hash of an entry.
+
+@param entry the number of the entry
+@return long the hash
+*********************************************************************/
+	public long hash(long entry) {
+		long offset = (entry + 1) * ENTRY_BYTES;
+		return segments[(int) (offset >>> SEGMENT_BITS)].getLong(
+				(int) (offset & ((1L << SEGMENT_BITS) - 1)));
+	}
+
+/*********************************************************************
+Returns the game number of an entry.
+
+@param entry the number of the entry
+@return int the number of the game in its record file, from 0
+*********************************************************************/
+	public int game(long entry) {
+		return (int) (data(entry) >>> 32);
+	}
+
+/*********************************************************************
+Returns the ply of an entry.
+
+@param entry the number of the entry
+@return int the number of moves made in the game before the position
+*********************************************************************/
+	public int ply(long entry) {
+		return (int) (data(entry) >>> 16) & 0xFFFF;
+	}
+
+/*********************************************************************
+Returns the move played next in the game of an entry.
+
+@param entry the number of the entry
+@return int the packed move, or Moves.NONE if the game ended there
+*********************************************************************/
+	public int nextMove(long entry) {
+		return (int) data(entry) & 0xFFFF;
+	}
+
+/*********************************************************************
+Returns the packed game number, ply and move of an entry.
+
+@param entry the number of the entry
+@return long the packed data
+*********************************************************************/
+	private long data(long entry) {
+		long offset = (entry + 1) * ENTRY_BYTES + 8;
+		return segments[(int) (offset >>> SEGMENT_BITS)].getLong(
+				(int) (offset & ((1L << SEGMENT_BITS) - 1)));
+	}
+
+/*********************************************************************
+Returns the first entry whose hash is at least a given hash. The
+fences narrow the search to the block before the first fence at
+least the hash and that fence's own first entry.
+
+@param hash the hash looked for
+@return long the number of the entry, or size if there is none
+*********************************************************************/
+	private long lowerBound(long hash) {
+
+		// the first block starting at or after the hash
+		int low = 0;
+		int high = fences.length;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (fences[middle] < hash) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		
+		// the entry is in the block before it, or starts it
+		long first = (long) Math.max(low - 1, 0) * FENCE_ENTRIES;
+		long last = Math.min((long) low * FENCE_ENTRIES + 1, size);
+		while (first < last) {
+			long middle = (first + last) >>> 1;
+			if (hash(middle) < hash) {
+				first = middle + 1;
+			}
+			else {
+				last = middle;
+			}
+		}
+		return first;
+	}
+
+/*********************************************************************
+Closes the index file. The mapped segments stay valid until they are
+garbage collected, but the index must not be used afterwards.
+
+@param none
+@return none
+@throws IOException if the file cannot be closed
+*********************************************************************/
+	public void close() throws IOException {
+		file.close();
+	}
+
+/*********************************************************************
+Builds an index from a record file, or looks up a FEN position in an
+index and prints the game, ply and next move of each entry, with the
+time the lookup took.
+Usage: {@code java chess.record.PositionIndex build records.cgr
+index.cpi [runMB]} or {@code java chess.record.PositionIndex query
+index.cpi fen}
+
+@param args the command, the files and the run size (64 MB by
+		default) or the fields of the FEN position
+@return none
+@throws IOException if a file cannot be read or written
+*********************************************************************/
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3 || (args[0].equals("build") == false &&
+				args[0].equals("query") == false)) {
+			System.err.println("Usage: java chess.record.PositionIndex " +
+					"build records.cgr index.cpi [runMB]");
+			System.err.println("       java chess.record.PositionIndex " +
+					"query index.cpi fen");
+			System.exit(2);
+		}
+		
+		if (args[0].equals("build")) {
+			int runMegabytes = args.length > 3 ?
+					Integer.parseInt(args[3]) : 64;
+			PositionIndexBuilder builder = new PositionIndexBuilder(
+					null, runMegabytes);
+			GameReader reader = new GameReader(
+					new FileInputStream(args[1]));
+			long start = System.nanoTime();
+			try {
+				builder.addGames(reader);
+			}
+			finally {
+				reader.close();
+			}
+			long size = builder.finish(new File(args[2]));
+			long elapsed = System.nanoTime() - start;
+			System.out.println("Positions: " + size);
+			System.out.println("Games: " + (reader.gameNumber() + 1));
+			System.out.println("Time: " + elapsed / 1000000 + " ms");
+			return;
+		}
+		
+		// look up the position
+		StringBuilder fen = new StringBuilder();
+		for (int i = 2; i < args.length; i++) {
+			fen.append(args[i]).append(' ');
+		}
+		ChessModel model = ChessModel.fromFen(fen.toString().trim());
+		PositionIndex index = new PositionIndex(new File(args[1]));
+		try {
+			long start = System.nanoTime();
+			long first = index.find(model);
+			long count = index.count(model);
+			long elapsed = System.nanoTime() - start;
+			for (long entry = first; entry < first + count; entry++) {
+				System.out.println("Game " + index.game(entry) + ", ply " +
+						index.ply(entry) + ", next " +
+						(index.nextMove(entry) == Moves.NONE ? "none" :
+						Moves.toString(index.nextMove(entry))));
+			}
+			System.out.println("Entries: " + count);
+			System.out.println("Lookup: " + elapsed / 1000 + " us");
+		}
+		finally {
+			index.close();
+		}
+	}
+}
@@ -0,0 +1,438 @@
+package chess.record;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.ChessModel;
+import chess.Moves;
+
+/*********************************************************************
+Builds a PositionIndex file from game records, with an external sort
+so that indexes far larger than memory can be built. Entries are
+collected in a fixed array, two longs each (the position hash, then
+the game, ply and next move packed as described in PositionIndex).
+Whenever the array fills it is sorted and written to a temporary run
+file; finish merges the runs into the index file, reading each run
+through a small buffer and taking entries from the runs in order
+with a heap. Memory use is the run array plus one buffer per run,
+whatever the number of positions.
+
+@version March 2013
+*********************************************************************/
+public final class PositionIndexBuilder {
+
+	/** number of bytes read or written through a run at a time */
+	private static final int RUN_BUFFER = 1 << 16;
+
+	/** number of bytes written to the index file at a time */
+	private static final int OUT_BUFFER = 1 << 20;
+
+	/** sorts of fewer entries than this use insertion sort */
+	private static final int INSERTION_SORT = 16;
+
+	/** the directory temporary run files are made in */
+	private final File tempDirectory;
+
+	/** the entries of the current run, two longs each */
+	private final long[] entries;
+
+	/** number of entries in the current run */
+	private int count;
+
+	/** the run files written so far */
+	private final List<File> runs = new ArrayList<File>();
+
+	/** number of entries added */
+	private long total;
+
+/*********************************************************************
+Constructor method, creates a builder that sorts runs of a given
+size in memory.
+
+@param tempDirectory the directory for run files, or null for the
+		system's temporary directory
+@param runMegabytes the memory used for each run
+@return none
+@throws IllegalArgumentException if runMegabytes is less than 1 or
+		more than 16384
+*********************************************************************/
+	public PositionIndexBuilder(File tempDirectory, int runMegabytes) {
+		if (runMegabytes < 1 || runMegabytes > 16384) {
+			throw new IllegalArgumentException(
+					"Run size must be between 1 and 16384 MB: " +
+					runMegabytes);
+		}
+		this.tempDirectory = tempDirectory;
+		entries = new long[(int) Math.min((long) runMegabytes << 17,
+				Integer.MAX_VALUE - 8) & ~1];
+	}
+
+/*********************************************************************
+Adds an entry for each position of each game in a record file: the
+starting position, the position after each move, with the move
+played from it, and the final position with Moves.NONE. Games are
+numbered by their place in the file, from 0.
+
+@param reader the records to add, read to the end
+@return none
+@throws IOException if a record or run file cannot be read or written
+*********************************************************************/
+	public void addGames(GameReader reader) throws IOException {
+		ChessModel model = new ChessModel();
+		while (reader.nextGame()) {
+			int game = (int) reader.gameNumber();
+			reader.setUp(model);
+			for (int ply = 0; ; ply++) {
+				int move = reader.nextMove(model);
+				add(model.hash(), game, ply, move);
+				if (move == Moves.NONE) {
+					break;
+				}
+				model.makeMove(move);
+				model.clearUndo();
+			}
+		}
+	}
+
+/*********************************************************************
+Adds one entry.
+
+@param hash the hash of the position (see ChessModel.hash)
+@param game the number of the game that reached the position
+@param ply the number of moves made before the position, up to 65535
+@param move the packed move played from the position, or Moves.NONE
+@return none
+@throws IOException if a run file cannot be written
+*********************************************************************/
+	public void add(long hash, int game, int ply, int move)
+			throws IOException {
+		if (count * 2 == entries.length) {
+			writeRun();
+		}
+		entries[count * 2] = hash;
+		entries[count * 2 + 1] = PositionIndex.pack(game, ply, move);
+		count++;
+		total++;
+	}
+
+/*********************************************************************
+Merges the runs into an index file and deletes them. The builder can
+not be used afterwards.
+
+@param index the index file to write, replaced if it exists
+@return long the number of entries in the index
+@throws IOException if a file cannot be read or written
+*********************************************************************/
+	public long finish(File index) throws IOException {
+		writeRun();
+		RandomAccessFile file = new RandomAccessFile(index, "rw");
+		Run[] heap = new Run[runs.size()];
+		try {
+			file.setLength(0);
+			FileChannel out = file.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(OUT_BUFFER);
+			PositionIndex.writeHeader(buffer, total);
+			
+			// open every run, with its first entry at hand
+			int size = 0;
+			for (File run : runs) {
+				Run cursor = new Run(run);
+				if (cursor.next()) {
+					heap[size++] = cursor;
+				}
+			}
+			for (int i = size / 2 - 1; i >= 0; i--) {
+				siftDown(heap, i, size);
+			}
+			
+			// take the smallest entry of all the runs each time
+			while (size > 0) {
+				Run smallest = heap[0];
+				if (buffer.remaining() < PositionIndex.ENTRY_BYTES) {
+					drain(out, buffer);
+				}
+				buffer.putLong(smallest.hash).putLong(smallest.data);
+				if (smallest.next() == false) {
+					smallest.close();
+					heap[0] = heap[--size];
+					heap[size] = null;
+				}
+				siftDown(heap, 0, size);
+			}
+			drain(out, buffer);
+			out.force(false);
+		}
+		finally {
+			for (Run run : heap) {
+				if (run != null) {
+					run.close();
+				}
+			}
+			file.close();
+			for (File run : runs) {
+				run.delete();
+			}
+		}
+		return total;
+	}
+
+/*********************************************************************
+Sorts the entries of the current run and writes them to a new run
+file.
+
+@param none
+@return none
+@throws IOException if the run file cannot be written
+*********************************************************************/
+	private void writeRun() throws IOException {
+		if (count == 0) {
+			return;
+		}
+		sort(0, count - 1);
+		
+		File run = File.createTempFile("run", ".cpi", tempDirectory);
+		runs.add(run);
+		RandomAccessFile file = new RandomAccessFile(run, "rw");
+		try {
+			FileChannel out = file.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(RUN_BUFFER);
+			for (int i = 0; i < count * 2; i++) {
+				if (buffer.hasRemaining() == false) {
+					drain(out, buffer);
+				}
+				buffer.putLong(entries[i]);
+			}
+			drain(out, buffer);
+		}
+		finally {
+			file.close();
+		}
+		count = 0;
+	}
+
+/*********************************************************************
+Writes out the contents of a buffer and empties it.
+
+@param out the file written to
+@param buffer the buffer, holding bytes from 0 to its position
+@return none
+@throws IOException if the file cannot be written
+*********************************************************************/
+	private static void drain(FileChannel out, ByteBuffer buffer)
+			throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+		buffer.clear();
+	}
+
+/*********************************************************************
+Sorts entries of the current run by hash, then by game and ply, with
+quicksort on the median of three, finishing small ranges with
+insertion sort. The smaller side is sorted by recursion and the
+larger by looping, so the stack stays shallow.
+
+@param low the first entry of the range
+@param high the last entry of the range
+@return none
+*********************************************************************/
+	private void sort(int low, int high) {
+		while (high - low >= INSERTION_SORT) {
+			
+			// the median of the first, middle and last entries
+			int middle = (low + high) >>> 1;
+			if (less(middle, low)) {
+				swap(middle, low);
+			}
+			if (less(high, low)) {
+				swap(high, low);
+			}
+			if (less(high, middle)) {
+				swap(high, middle);
+			}
+			long pivotHash = entries[middle * 2];
+			long pivotData = entries[middle * 2 + 1];
+			
+			// split into entries at most and at least the pivot
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (compare(i, pivotHash, pivotData) < 0) {
+					i++;
+				}
+				while (compare(j, pivotHash, pivotData) > 0) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+			if (j - low < high - i) {
+				sort(low, j);
+				low = i;
+			}
+			else {
+				sort(i, high);
+				high = j;
+			}
+		}
+		
+		// small ranges
+		for (int i = low + 1; i <= high; i++) {
+			for (int j = i; j > low && less(j, j - 1); j--) {
+				swap(j, j - 1);
+			}
+		}
+	}
+
+/*********************************************************************
+Compares an entry of the current run with a hash and packed data.
+
+@param i the entry
+@param hash the hash compared with
+@param data the packed data compared with
+@return int negative, zero or positive as the entry is smaller, equal
+		or larger
+*********************************************************************/
+	private int compare(int i, long hash, long data) {
+		long entryHash = entries[i * 2];
+		if (entryHash != hash) {
+			return entryHash < hash ? -1 : 1;
+		}
+		long entryData = entries[i * 2 + 1];
+		return entryData < data ? -1 : entryData == data ? 0 : 1;
+	}
+
+/*********************************************************************
+Returns whether one entry of the current run sorts before another.
+
+@param i the first entry
+@param j the second entry
+@return boolean true if entry i is smaller
+*********************************************************************/
+	private boolean less(int i, int j) {
+		return compare(i, entries[j * 2], entries[j * 2 + 1]) < 0;
+	}
+
+/*********************************************************************
+Swaps two entries of the current run.
+
+@param i the first entry
+@param j the second entry
+@return none
+*********************************************************************/
+	private void swap(int i, int j) {
+		long hash = entries[i * 2];
+		long data = entries[i * 2 + 1];
+		entries[i * 2] = entries[j * 2];
+		entries[i * 2 + 1] = entries[j * 2 + 1];
+		entries[j * 2] = hash;
+		entries[j * 2 + 1] = data;
+	}
+
+/*********************************************************************
+Moves a run down the heap until neither of its children is smaller.
+
+@param heap the runs, smallest current entry first
+@param i the place of the run to move
+@param size the number of runs in the heap
+@return none
+*********************************************************************/
+	private static void siftDown(Run[] heap, int i, int size) {
+		Run run = heap[i];
+		for (int child = 2 * i + 1; child < size; child = 2 * i + 1) {
+			if (child + 1 < size && heap[child + 1].before(heap[child])) {
+				child++;
+			}
+			if (heap[child].before(run) == false) {
+				break;
+			}
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = run;
+	}
+
+/*********************************************************************
+A sorted run file being merged, read through a small buffer, with
+its current entry at hand.
+*********************************************************************/
+	private static final class Run {
+
+		/** the run file */
+		private final RandomAccessFile file;
+
+		/** bytes read from the file */
+		private final ByteBuffer buffer = ByteBuffer.allocate(RUN_BUFFER);
+
+		/** hash of the current entry */
+		long hash;
+
+		/** packed data of the current entry */
+		long data;
+
+/*********************************************************************
+Constructor method, opens a run file.
+
+@param run the run file
+@return none
+@throws IOException if it cannot be opened
+*********************************************************************/
+		Run(File run) throws IOException {
+			file = new RandomAccessFile(run, "r");
+			buffer.flip();
+		}
+
+/*********************************************************************
+Moves to the next entry of the run.
+
+@param none
+@return boolean true if there is one, false at the end of the run
+@throws IOException if the file cannot be read
+*********************************************************************/
+		boolean next() throws IOException {
+			if (buffer.remaining() < PositionIndex.ENTRY_BYTES) {
+				buffer.compact();
+				while (buffer.position() < PositionIndex.ENTRY_BYTES &&
+						file.getChannel().read(buffer) >= 0) {
+				}
+				buffer.flip();
+				if (buffer.remaining() < PositionIndex.ENTRY_BYTES) {
+					return false;
+				}
+			}
+			hash = buffer.getLong();
+			data = buffer.getLong();
+			return true;
+		}
+
+/*********************************************************************
+Returns whether the current entry of this run sorts before that of
+another.
+
+@param other the other run
+@return boolean true if this run's entry is smaller
+*********************************************************************/
+		boolean before(Run other) {
+			return hash < other.hash ||
+					(hash == other.hash && data < other.data);
+		}
+
+/*********************************************************************
+Closes the run file.
+
+@param none
+@return none
+@throws IOException if it cannot be closed
+*********************************************************************/
+		void close() throws IOException {
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package chess;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.Random;
+
+import org.junit.Test;
+
+/*********************************************************************
+Checks that the evaluation totals kept up to date by makeMove and
+unmakeMove match totals counted from scratch, and that weights are
+loaded and saved whole.
+
+@version March 2013
+*********************************************************************/
+public class EvalTest {
+
+/*********************************************************************
+Returns the evaluation of a model after counting its totals again
+from the pieces on the board.
+
+@param model the position
+@return int the evaluation from scratch
+*********************************************************************/
+	private static int fresh(ChessModel model) {
+		model.setWeights(model.getWeights());
+		return model.evaluate();
+	}
+
+/*********************************************************************
+The starting position is level.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testStartIsLevel() {
+		assertEquals(0, new ChessModel().evaluate());
+	}
+
+/*********************************************************************
+Plays random games, comparing the incremental evaluation with one
+from scratch after each move and each move taken back.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testIncrementalMatchesFresh() {
+		Random random = new Random(2013);
+		MoveList moves = new MoveList();
+		for (int game = 0; game < 20; game++) {
+			ChessModel model = new ChessModel();
+			int plies = 0;
+			for (; plies < 200; plies++) {
+				moves.clear();
+				model.generateLegalMoves(moves);
+				if (moves.size() == 0) {
+					break;
+				}
+				model.makeMove(moves.get(random.nextInt(moves.size())));
+				int incremental = model.evaluate();
+				assertEquals(fresh(model), incremental);
+			}
+			for (; plies > 0; plies--) {
+				model.unmakeMove();
+				int incremental = model.evaluate();
+				assertEquals(fresh(model), incremental);
+			}
+			assertEquals(0, model.evaluate());
+		}
+	}
+
+/*********************************************************************
+The phase of the starting position, which the taper divides by, is
+worked out from the phase weights.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testMaxPhase() {
+		assertEquals(24, EvalWeights.DEFAULT.maxPhase);
+		
+		Properties properties = new Properties();
+		properties.setProperty("queen.phase", "6");
+		properties.setProperty("pawn.phase", "1");
+		assertEquals(44, EvalWeights.fromProperties(properties).maxPhase);
+		
+		// weights without any phase still divide by something
+		for (PieceKind kind : PieceKind.values()) {
+			properties.setProperty(kind.type().toLowerCase() + ".phase",
+					"0");
+		}
+		EvalWeights flat = EvalWeights.fromProperties(properties);
+		assertEquals(1, flat.maxPhase);
+		ChessModel model = new ChessModel();
+		model.setWeights(flat);
+		assertEquals(0, model.evaluate());
+	}
+
+/*********************************************************************
+Weights saved to a file are read back the same.
+
+@param none
+@return none
+@throws IOException if the file cannot be written or read
+*********************************************************************/
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty("knight.value", "300 290");
+		EvalWeights weights = EvalWeights.fromProperties(properties);
+		File file = File.createTempFile("weights", ".properties");
+		try {
+			weights.save(file);
+			EvalWeights loaded = EvalWeights.load(file);
+			for (int piece = 0; piece < 2 * Position.KINDS; piece++) {
+				for (int square = 0; square < 64; square++) {
+					assertEquals(weights.mg[piece][square],
+							loaded.mg[piece][square]);
+					assertEquals(weights.eg[piece][square],
+							loaded.eg[piece][square]);
+				}
+			}
+			assertEquals(300, loaded.mgValues[PieceKind.KNIGHT.ordinal()]);
+			assertEquals(weights.maxPhase, loaded.maxPhase);
+		}
+		finally {
+			file.delete();
+		}
+	}
+}
@@ -0,0 +1,146 @@
+package chess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/*********************************************************************
+Checks reading and writing positions in Forsyth-Edwards Notation.
+
+@version March 2013
+*********************************************************************/
+public class FenTest {
+
+	/** positions written as toFen writes them */
+	private static final String[] CORPUS = {
+		ChessModel.START_FEN,
+		"r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w - - 2 3",
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w - - 0 1",
+		"r2q1rk1/pp2bppp/2n1pn2/3p4/3P4/2NBPN2/PP3PPP/R2Q1RK1 b - - 4 9",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+		"8/5pk1/6p1/8/3R4/6P1/5PK1/1r6 b - - 3 41",
+		"4k3/8/8/3q4/8/8/3Q4/4K3 w - - 0 60",
+	};
+
+	/** malformed positions, or positions no game can reach */
+	private static final String[] BAD = {
+		"",
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w - - 0 1",
+		"rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+		"rnbqkbnr/pppppppp/7/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+		"rnbqkbnr/ppppxppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1",
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x - - 0 1",
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - e5 0 1",
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - z 1",
+		"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1 x",
+		"8/8/8/8/8/8/8/K7 w - - 0 1",
+		"k6K/8/8/8/8/8/8/K7 w - - 0 1",
+		"k7/8/8/8/8/P7/PPPPPPPP/K7 w - - 0 1",
+		"k6P/8/8/8/8/8/8/K7 w - - 0 1",
+		"k7/8/8/8/8/8/QQQQQQQQ/KQQ5 w - - 0 1",
+		"k7/8/8/8/8/PP6/QQQQQQQQ/K7 w - - 0 1",
+		"k7/8/8/8/PPPPPPPP/NNN5/8/K7 w - - 0 1",
+	};
+
+/*********************************************************************
+Reads and writes each position of the corpus unchanged.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testRoundTrip() {
+		for (String fen : CORPUS) {
+			assertEquals(fen, ChessModel.fromFen(fen).toFen());
+		}
+		assertEquals(new ChessModel().hash(),
+				ChessModel.fromFen(ChessModel.START_FEN).hash());
+		assertEquals(ChessModel.START_FEN, new ChessModel().toFen());
+	}
+
+/*********************************************************************
+Fields left off take their defaults, and castling rights are read
+but dropped.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testDefaults() {
+		assertEquals("k7/8/8/8/8/8/8/K7 w - - 0 1",
+				ChessModel.fromFen("k7/8/8/8/8/8/8/K7").toFen());
+		assertEquals("k7/8/8/8/8/8/8/K7 b - - 0 1",
+				ChessModel.fromFen("k7/8/8/8/8/8/8/K7 b").toFen());
+		assertEquals(ChessModel.START_FEN, ChessModel.fromFen(
+				"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1")
+				.toFen());
+	}
+
+/*********************************************************************
+Writes the positions of random games and reads them back into the
+same position, with the same hash and the same move counters.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testGames() {
+		Random random = new Random(1847);
+		MoveList moves = new MoveList();
+		ChessModel reader = new ChessModel();
+		for (int game = 0; game < 20; game++) {
+			ChessModel model = new ChessModel();
+			for (int ply = 0; ply < 150; ply++) {
+				moves.clear();
+				model.generateLegalMoves(moves);
+				if (moves.size() == 0) {
+					break;
+				}
+				model.makeMove(moves.get(random.nextInt(moves.size())));
+				String fen = model.toFen();
+				reader.setFen(fen);
+				assertEquals(fen, reader.toFen());
+				assertEquals(model.hash(), reader.hash());
+			}
+		}
+	}
+
+/*********************************************************************
+Rejects each bad position, leaving the board empty.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testBadFen() {
+		ChessModel model = new ChessModel();
+		for (String fen : BAD) {
+			try {
+				model.setFen(fen);
+				fail("Accepted " + fen);
+			}
+			catch (IllegalArgumentException e) {
+				assertEquals("8/8/8/8/8/8/8/8 w - - 0 1", model.toFen());
+			}
+		}
+	}
+
+/*********************************************************************
+The most pieces a player can have fit in a MoveList.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testMostPieces() {
+		ChessModel model = ChessModel.fromFen(
+				"k7/8/8/8/8/QQQQQQQQ/8/KQRRBBNN w - - 0 1");
+		MoveList moves = new MoveList();
+		model.generateLegalMoves(moves);
+		assertTrue(moves.size() > 0);
+	}
+}
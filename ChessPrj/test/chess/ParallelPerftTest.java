@@ -0,0 +1,61 @@
+package chess;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/*********************************************************************
+Checks that the parallel perft counts the same positions as the
+serial one, with and without its shared cache.
+
+@version March 2013
+*********************************************************************/
+public class ParallelPerftTest {
+
+/*********************************************************************
+Counts a position after a few moves both ways, with and without the
+cache.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testMatchesSerial() {
+		ChessModel model = new ChessModel();
+		model.makeMove(new Move(6, 4, 4, 4));
+		model.makeMove(new Move(1, 3, 3, 3));
+		long serial = new Perft(4).count(model, 4);
+		
+		for (int cache = 0; cache <= 1; cache++) {
+			ParallelPerft perft = new ParallelPerft(3, cache);
+			try {
+				assertEquals(serial, perft.count(model, 4));
+				
+				// a second count is answered from the cache, if any
+				assertEquals(serial, perft.count(model, 4));
+			}
+			finally {
+				perft.shutdown();
+			}
+		}
+	}
+
+/*********************************************************************
+Checks that a copy made for another thread is independent of the
+original.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testCopyIsIndependent() {
+		ChessModel model = new ChessModel();
+		ChessModel copy = new ChessModel(model);
+		assertEquals(model.hash(), copy.hash());
+		
+		copy.makeMove(new Move(6, 4, 4, 4));
+		assertEquals(Player.WHITE, model.currentPlayer());
+		assertEquals(null, model.pieceAt(4, 4));
+		assertEquals(new ChessModel().hash(), model.hash());
+	}
+}
@@ -0,0 +1,101 @@
+package chess;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/*********************************************************************
+Checks that pawn structure taken from the cache is the structure
+scored from scratch, and that passed pawns are found.
+
+@version March 2013
+*********************************************************************/
+public class PawnCacheTest {
+
+/*********************************************************************
+Plays random games on a model with a tiny cache, so entries are
+replaced all the time, and compares each evaluation with that of a
+copy scoring the pawns afresh.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testCachedMatchesFresh() {
+		Random random = new Random(1913);
+		MoveList moves = new MoveList();
+		PawnCache cache = new PawnCache(2);
+		for (int game = 0; game < 20; game++) {
+			ChessModel model = new ChessModel();
+			model.setPawnCache(cache);
+			for (int ply = 0; ply < 150; ply++) {
+				moves.clear();
+				model.generateLegalMoves(moves);
+				if (moves.size() == 0) {
+					break;
+				}
+				model.makeMove(moves.get(random.nextInt(moves.size())));
+				
+				ChessModel copy = new ChessModel(model);
+				copy.setPawnCache(new PawnCache(1));
+				assertEquals(copy.evaluate(), model.evaluate());
+				assertEquals(copy.passedPawns(), model.passedPawns());
+			}
+		}
+	}
+
+/*********************************************************************
+Looking up the same pawns twice finds the entry the second time.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testHits() {
+		ChessModel model = new ChessModel();
+		PawnCache cache = new PawnCache(16);
+		model.setPawnCache(cache);
+		model.evaluate();
+		assertEquals(1, cache.probes());
+		assertEquals(0, cache.hits());
+		
+		// a knight move leaves the pawns where they were
+		model.makeMove(new Move(7, 6, 5, 5));
+		model.evaluate();
+		assertEquals(2, cache.probes());
+		assertEquals(1, cache.hits());
+	}
+
+/*********************************************************************
+A pawn is passed until an opposing pawn stands ahead of it on its
+own or a neighbouring column.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testPassedPawns() {
+		ChessModel model = new ChessModel();
+		for (int r = 0; r < 8; r++) {
+			for (int c = 0; c < 8; c++) {
+				model.setPiece(r, c, null);
+			}
+		}
+		model.setPiece(0, 7, Pieces.of(Player.BLACK, PieceKind.KING));
+		model.setPiece(7, 6, Pieces.of(Player.WHITE, PieceKind.KING));
+		model.setPiece(3, 4, Pieces.of(Player.WHITE, PieceKind.PAWN));
+		assertEquals(1L << (3 * 8 + 4), model.passedPawns());
+		
+		// a black pawn on d7 can capture it on its way
+		model.setPiece(1, 3, Pieces.of(Player.BLACK, PieceKind.PAWN));
+		assertEquals(0, model.passedPawns());
+		
+		// a black pawn on d4 has gone past it, and both are passed
+		model.setPiece(1, 3, null);
+		model.setPiece(4, 3, Pieces.of(Player.BLACK, PieceKind.PAWN));
+		assertEquals(1L << (3 * 8 + 4) | 1L << (4 * 8 + 3),
+				model.passedPawns());
+	}
+}
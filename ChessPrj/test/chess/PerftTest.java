@@ -0,0 +1,59 @@
+package chess;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/*********************************************************************
+Checks the move generator against the published perft counts of the
+starting position.
+
+@version March 2013
+*********************************************************************/
+public class PerftTest {
+
+/*********************************************************************
+Counts the starting position to depth 4, where the published counts
+hold without castling or en passant.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testStartPosition() {
+		ChessModel model = new ChessModel();
+		Perft perft = new Perft(4);
+		assertEquals(1, perft.count(model, 0));
+		assertEquals(20, perft.count(model, 1));
+		assertEquals(400, perft.count(model, 2));
+		assertEquals(8902, perft.count(model, 3));
+		assertEquals(197281, perft.count(model, 4));
+	}
+
+/*********************************************************************
+Counts the starting position to depth 5, which is 258 below the
+published 4865609 because these rules have no en passant captures.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testDepthFive() {
+		assertEquals(4865351, new Perft(5).count(new ChessModel(), 5));
+	}
+
+/*********************************************************************
+Checks that counting leaves the model in its original position.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testModelRestored() {
+		ChessModel model = new ChessModel();
+		long hash = model.hash();
+		new Perft(3).count(model, 3);
+		assertEquals(hash, model.hash());
+		assertEquals(Player.WHITE, model.currentPlayer());
+	}
+}
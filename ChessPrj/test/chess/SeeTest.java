@@ -0,0 +1,194 @@
+package chess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/*********************************************************************
+Checks static exchange evaluation and the capture search built on it
+against exchanges worked out by hand.
+
+@version March 2013
+*********************************************************************/
+public class SeeTest {
+
+	/** the values see counts pieces at */
+	private static final int[] VALUES = EvalWeights.DEFAULT.mgValues;
+
+	/** value of a pawn */
+	private static final int PAWN = VALUES[PieceKind.PAWN.ordinal()];
+
+	/** value of a knight */
+	private static final int KNIGHT = VALUES[PieceKind.KNIGHT.ordinal()];
+
+	/** value of a rook */
+	private static final int ROOK = VALUES[PieceKind.ROOK.ordinal()];
+
+	/** value of a queen */
+	private static final int QUEEN = VALUES[PieceKind.QUEEN.ordinal()];
+
+/*********************************************************************
+Returns a game with only the two kings on the board, black's on h8
+and white's on g1, and white to move.
+
+@param none
+@return ChessModel the game
+*********************************************************************/
+	private static ChessModel kings() {
+		ChessModel model = new ChessModel();
+		for (int r = 0; r < 8; r++) {
+			for (int c = 0; c < 8; c++) {
+				model.setPiece(r, c, null);
+			}
+		}
+		put(model, Player.BLACK, PieceKind.KING, 0, 7);
+		put(model, Player.WHITE, PieceKind.KING, 7, 6);
+		return model;
+	}
+
+/*********************************************************************
+Puts a piece on the board.
+
+@param model the game
+@param player the owner of the piece
+@param kind the kind of piece
+@param row the row of the square, 0 being rank 8
+@param column the column of the square, 0 being file a
+@return none
+*********************************************************************/
+	private static void put(ChessModel model, Player player,
+			PieceKind kind, int row, int column) {
+		model.setPiece(row, column, Pieces.of(player, kind));
+	}
+
+/*********************************************************************
+Returns the packed move between two squares.
+
+@param fromRow the row moved from
+@param fromColumn the column moved from
+@param toRow the row moved to
+@param toColumn the column moved to
+@return int the packed move
+*********************************************************************/
+	private static int move(int fromRow, int fromColumn, int toRow,
+			int toColumn) {
+		return Moves.encode(fromRow * 8 + fromColumn, toRow * 8 +
+				toColumn);
+	}
+
+/*********************************************************************
+A rook taking a pawn wins the pawn, unless the pawn is defended.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testDefendedPawn() {
+		ChessModel model = kings();
+		put(model, Player.WHITE, PieceKind.ROOK, 7, 4);
+		put(model, Player.BLACK, PieceKind.PAWN, 3, 4);
+		assertEquals(PAWN, model.see(move(7, 4, 3, 4)));
+		
+		put(model, Player.BLACK, PieceKind.PAWN, 2, 3);
+		assertEquals(PAWN - ROOK, model.see(move(7, 4, 3, 4)));
+	}
+
+/*********************************************************************
+A rook behind another joins in once the one in front has captured.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testXRay() {
+		ChessModel model = kings();
+		put(model, Player.WHITE, PieceKind.ROOK, 7, 4);
+		put(model, Player.WHITE, PieceKind.ROOK, 6, 4);
+		put(model, Player.BLACK, PieceKind.PAWN, 3, 4);
+		put(model, Player.BLACK, PieceKind.ROOK, 0, 4);
+		assertEquals(PAWN, model.see(move(6, 4, 3, 4)));
+		
+		// a defending knight makes the exchange lose a rook
+		put(model, Player.BLACK, PieceKind.KNIGHT, 1, 3);
+		assertEquals(PAWN - ROOK, model.see(move(6, 4, 3, 4)));
+	}
+
+/*********************************************************************
+A pawn recapturing on the last row counts as the queen it becomes.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testPromotingRecapture() {
+		ChessModel model = kings();
+		put(model, Player.WHITE, PieceKind.PAWN, 6, 0);
+		model.makeMove(new Move(6, 0, 5, 0));
+		
+		// black's rook takes a knight that a pawn on b7 guards
+		put(model, Player.WHITE, PieceKind.KNIGHT, 0, 2);
+		put(model, Player.WHITE, PieceKind.PAWN, 1, 1);
+		put(model, Player.BLACK, PieceKind.ROOK, 0, 0);
+		assertEquals(KNIGHT - ROOK - QUEEN + PAWN,
+				model.see(move(0, 0, 0, 2)));
+	}
+
+/*********************************************************************
+A king cannot recapture on a square the other player still attacks,
+which ends the exchange.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testKingEndsExchange() {
+		ChessModel model = kings();
+		put(model, Player.BLACK, PieceKind.PAWN, 1, 6);
+		put(model, Player.WHITE, PieceKind.ROOK, 5, 6);
+		assertEquals(PAWN - ROOK, model.see(move(5, 6, 1, 6)));
+		
+		// a second rook behind the first keeps the king away
+		put(model, Player.WHITE, PieceKind.ROOK, 6, 6);
+		assertEquals(PAWN, model.see(move(5, 6, 1, 6)));
+	}
+
+/*********************************************************************
+Resolving captures wins a loose queen, leaves a quiet position at its
+static score and changes nothing on the board.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testResolveCaptures() {
+		ChessModel model = new ChessModel();
+		assertEquals(model.evaluate(), model.resolveCaptures());
+		
+		model = kings();
+		put(model, Player.WHITE, PieceKind.ROOK, 7, 0);
+		put(model, Player.BLACK, PieceKind.QUEEN, 3, 0);
+		long hash = model.hash();
+		assertTrue(model.resolveCaptures() > model.evaluate() + ROOK);
+		assertEquals(hash, model.hash());
+		assertEquals(Player.WHITE, model.currentPlayer());
+		assertEquals(false, model.canUndo());
+	}
+
+/*********************************************************************
+A capture that would leave the king in check is not searched.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testPinnedCapture() {
+		ChessModel model = kings();
+		
+		// the knight on e3 is pinned to the king by a bishop on c5
+		put(model, Player.WHITE, PieceKind.KNIGHT, 5, 4);
+		put(model, Player.BLACK, PieceKind.BISHOP, 3, 2);
+		put(model, Player.BLACK, PieceKind.QUEEN, 3, 3);
+		assertEquals(model.evaluate(), model.resolveCaptures());
+	}
+}
@@ -0,0 +1,124 @@
+package chess.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import chess.ChessModel;
+import chess.Move;
+import chess.Moves;
+import chess.PieceKind;
+import chess.Pieces;
+import chess.Player;
+
+/*********************************************************************
+Checks that the search finds forced mates, scores finished games and
+leaves the position it searches as it was.
+
+@version March 2013
+*********************************************************************/
+public class SearchTest {
+
+/*********************************************************************
+Returns a game with only the two kings on the board, black's on h8
+and white's on g1, and white to move.
+
+@param none
+@return ChessModel the game
+*********************************************************************/
+	static ChessModel kings() {
+		ChessModel model = new ChessModel();
+		for (int r = 0; r < 8; r++) {
+			for (int c = 0; c < 8; c++) {
+				model.setPiece(r, c, null);
+			}
+		}
+		put(model, Player.BLACK, PieceKind.KING, 0, 7);
+		put(model, Player.WHITE, PieceKind.KING, 7, 6);
+		return model;
+	}
+
+/*********************************************************************
+Puts a piece on the board.
+
+@param model the game
+@param player the owner of the piece
+@param kind the kind of piece
+@param row the row of the square, 0 being rank 8
+@param column the column of the square, 0 being file a
+@return none
+*********************************************************************/
+	static void put(ChessModel model, Player player, PieceKind kind,
+			int row, int column) {
+		model.setPiece(row, column, Pieces.of(player, kind));
+	}
+
+/*********************************************************************
+Finds a back rank mate in one, Ra1-a8.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testFindsMateInOne() {
+		ChessModel model = kings();
+		put(model, Player.BLACK, PieceKind.PAWN, 1, 6);
+		put(model, Player.BLACK, PieceKind.PAWN, 1, 7);
+		put(model, Player.WHITE, PieceKind.ROOK, 7, 0);
+		long hash = model.hash();
+		
+		Search search = new Search(new TranspositionTable(1));
+		Search.Result result = search.search(model, 4);
+		assertEquals("a1a8", Moves.toString(result.move));
+		assertEquals(Search.MATE - 1, result.score);
+		assertEquals(hash, model.hash());
+	}
+
+/*********************************************************************
+Scores a checkmated player and a stalemated player.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testFinishedGames() {
+		Search search = new Search(new TranspositionTable(1));
+		
+		// a queen on g7, guarded by the king on f6, mates
+		ChessModel model = kings();
+		model.setPiece(7, 6, null);
+		put(model, Player.WHITE, PieceKind.KING, 2, 5);
+		put(model, Player.WHITE, PieceKind.PAWN, 6, 0);
+		model.makeMove(new Move(6, 0, 5, 0));
+		put(model, Player.WHITE, PieceKind.QUEEN, 1, 6);
+		Search.Result result = search.search(model, 3);
+		assertEquals(Moves.NONE, result.move);
+		assertEquals(-Search.MATE, result.score);
+		
+		// with the queen on g6 instead, black cannot move
+		model.setPiece(1, 6, null);
+		put(model, Player.WHITE, PieceKind.QUEEN, 2, 6);
+		result = search.search(model, 3);
+		assertEquals(Moves.NONE, result.move);
+		assertEquals(0, result.score);
+	}
+
+/*********************************************************************
+Checks that a search of the starting position returns a legal move
+and its principal variation.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testStartPosition() {
+		ChessModel model = new ChessModel();
+		Search.Result result = new Search(new TranspositionTable(1))
+				.search(model, 4);
+		assertEquals(4, result.depth);
+		assertEquals(result.move, result.pv[0]);
+		assertTrue(model.isValidMove(new Move(result.move)));
+		assertTrue(Math.abs(result.score) < 200);
+	}
+}
@@ -0,0 +1,47 @@
+package chess.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import chess.ChessModel;
+import chess.Moves;
+import chess.PieceKind;
+import chess.Player;
+
+/*********************************************************************
+Checks that a search on several threads finds what one thread finds
+and returns once the first thread is done.
+
+@version March 2013
+*********************************************************************/
+public class SmpSearchTest {
+
+/*********************************************************************
+Finds a back rank mate in one with three threads. The helpers search
+past the requested depth until they are stopped, so the search only
+returns if they are.
+
+@param none
+@return none
+*********************************************************************/
+	@Test(timeout = 60000)
+	public void testFindsMateInOne() {
+		ChessModel model = SearchTest.kings();
+		SearchTest.put(model, Player.BLACK, PieceKind.PAWN, 1, 6);
+		SearchTest.put(model, Player.BLACK, PieceKind.PAWN, 1, 7);
+		SearchTest.put(model, Player.WHITE, PieceKind.ROOK, 7, 0);
+		long hash = model.hash();
+		
+		SmpSearch search = new SmpSearch(3, new TranspositionTable(1));
+		try {
+			Search.Result result = search.search(model, 4, 0);
+			assertEquals("a1a8", Moves.toString(result.move));
+			assertEquals(Search.MATE - 1, result.score);
+			assertEquals(hash, model.hash());
+		}
+		finally {
+			search.shutdown();
+		}
+	}
+}
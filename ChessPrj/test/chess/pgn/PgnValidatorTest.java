@@ -0,0 +1,230 @@
+package chess.pgn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import chess.ChessModel;
+import chess.MoveList;
+
+/*********************************************************************
+Checks that a PGN file gets the same verdicts however many threads
+check it, and that a reader limited to a range stops where it ends.
+
+@version March 2013
+*********************************************************************/
+public class PgnValidatorTest {
+
+	/** number of games in the file */
+	private static final int GAMES = 300;
+
+	/** the game that has an illegal move */
+	private static final int BAD_GAME = 7;
+
+	/** the ply of the illegal move */
+	private static final int BAD_PLY = 3;
+
+	/** the file checked by every test */
+	private static File file;
+
+	/** number of moves played in the file's valid games */
+	private static long moves;
+
+/*********************************************************************
+Writes a file of random games. Every tenth game has tags alone, and
+one game has a king move no rule allows.
+
+@param none
+@return none
+@throws IOException if the file cannot be written
+*********************************************************************/
+	@BeforeClass
+	public static void writeFile() throws IOException {
+		file = File.createTempFile("games", ".pgn");
+		Random random = new Random(1858);
+		MoveList legal = new MoveList();
+		MoveList buffer = new MoveList();
+		StringBuilder text = new StringBuilder();
+		for (int game = 0; game < GAMES; game++) {
+			text.append("[Event \"Game ").append(game).append("\"]\n");
+			text.append("[Result \"*\"]\n\n");
+			if (game % 10 == 0) {
+				continue;
+			}
+			if (game == BAD_GAME) {
+				text.append("1. e4 e5 2. Ke3 Nc6 *\n\n");
+				continue;
+			}
+			ChessModel model = new ChessModel();
+			int plies = random.nextInt(120);
+			for (int ply = 0; ply < plies; ply++) {
+				legal.clear();
+				model.generateLegalMoves(legal);
+				if (legal.size() == 0) {
+					break;
+				}
+				int move = legal.get(random.nextInt(legal.size()));
+				if (ply % 2 == 0) {
+					text.append(ply / 2 + 1).append(". ");
+				}
+				San.append(model, move, buffer, text);
+				text.append(ply % 8 == 7 ? '\n' : ' ');
+				model.makeMove(move);
+				moves++;
+			}
+			text.append("*\n\n");
+		}
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.toString().getBytes("US-ASCII"));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+/*********************************************************************
+Deletes the file.
+
+@param none
+@return none
+*********************************************************************/
+	@AfterClass
+	public static void deleteFile() {
+		file.delete();
+	}
+
+/*********************************************************************
+Returns the verdicts on the games of the file, by offset, checked on
+a number of threads.
+
+@param threads the number of threads
+@return Map the verdict on each game by its offset
+@throws IOException if the file cannot be read
+*********************************************************************/
+	private static Map<Long, PgnValidator.Verdict> validate(int threads)
+			throws IOException {
+		final Map<Long, PgnValidator.Verdict> verdicts =
+				new TreeMap<Long, PgnValidator.Verdict>();
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		PgnValidator validator = new PgnValidator(threads);
+		try {
+			PgnValidator.Report report = validator.validate(
+					in.getChannel(), new PgnValidator.Listener() {
+				public void verdict(PgnValidator.Verdict verdict) {
+					synchronized (verdicts) {
+						verdicts.put(verdict.offset, verdict);
+					}
+				}
+			});
+			assertEquals(GAMES, report.games);
+			assertEquals(1, report.badGames);
+			assertEquals(moves + BAD_PLY - 1, report.moves);
+		}
+		finally {
+			validator.shutdown();
+			in.close();
+		}
+		return verdicts;
+	}
+
+/*********************************************************************
+One thread and several give the same verdict on every game, games of
+tags alone included, and the bad game names its bad ply.
+
+@param none
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	@Test
+	public void testSameVerdicts() throws IOException {
+		Map<Long, PgnValidator.Verdict> one = validate(1);
+		assertEquals(GAMES, one.size());
+		int bad = 0;
+		for (PgnValidator.Verdict verdict : one.values()) {
+			if (verdict.isValid() == false) {
+				assertEquals(BAD_PLY, verdict.badPly);
+				assertEquals("Ke3", verdict.text);
+				bad++;
+			}
+		}
+		assertEquals(1, bad);
+		
+		for (int threads = 2; threads <= 4; threads++) {
+			Map<Long, PgnValidator.Verdict> many = validate(threads);
+			assertEquals(one.keySet(), many.keySet());
+			for (Map.Entry<Long, PgnValidator.Verdict> entry :
+					one.entrySet()) {
+				assertEquals(entry.getValue().toString(),
+						many.get(entry.getKey()).toString());
+			}
+		}
+	}
+
+/*********************************************************************
+Reading the parts the file is split into, one after another, reads
+each game once.
+
+@param none
+@return none
+@throws IOException if the file cannot be read
+*********************************************************************/
+	@Test
+	public void testParts() throws IOException {
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			long[] bounds = PgnValidator.split(channel, 16);
+			assertTrue(bounds.length > 2);
+			assertEquals(channel.size(), bounds[bounds.length - 1]);
+			
+			final long[] moved = new long[1];
+			PgnListener counter = new PgnListener() {
+				public void startGame(long offset) {
+				}
+				
+				public void header(CharSequence name,
+						CharSequence value) {
+				}
+				
+				public void move(int ply, CharSequence san, int move) {
+					moved[0]++;
+				}
+				
+				public void error(int ply, CharSequence text,
+						String reason) {
+				}
+				
+				public void endGame(CharSequence result) {
+				}
+			};
+			PgnReader reader = new PgnReader(channel);
+			long games = 0;
+			for (int part = 0; part < bounds.length - 1; part++) {
+				games += reader.read(counter, bounds[part],
+						bounds[part + 1]);
+			}
+			assertEquals(GAMES, games);
+			assertEquals(moves + BAD_PLY - 1, moved[0]);
+			moved[0] = 0;
+			assertEquals(GAMES, reader.read(counter));
+			assertEquals(moves + BAD_PLY - 1, moved[0]);
+		}
+		finally {
+			in.close();
+		}
+	}
+}
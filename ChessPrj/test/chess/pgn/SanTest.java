@@ -0,0 +1,97 @@
+package chess.pgn;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import chess.ChessModel;
+import chess.MoveList;
+import chess.Moves;
+
+/*********************************************************************
+Checks that moves written in SAN are read back as the same moves.
+
+@version March 2013
+*********************************************************************/
+public class SanTest {
+
+/*********************************************************************
+Writes every legal move along random games and parses it back.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testRoundTrip() {
+		Random random = new Random(1851);
+		MoveList legal = new MoveList();
+		MoveList moves = new MoveList();
+		StringBuilder text = new StringBuilder();
+		for (int game = 0; game < 20; game++) {
+			ChessModel model = new ChessModel();
+			for (int ply = 0; ply < 150; ply++) {
+				legal.clear();
+				model.generateLegalMoves(legal);
+				if (legal.size() == 0) {
+					break;
+				}
+				for (int i = 0; i < legal.size(); i++) {
+					text.setLength(0);
+					San.append(model, legal.get(i), moves, text);
+					assertEquals(text.toString(), legal.get(i),
+							San.parse(model, text, moves));
+				}
+				model.makeMove(legal.get(random.nextInt(legal.size())));
+			}
+		}
+	}
+
+/*********************************************************************
+Reads the forms of the same opening moves that PGN files use.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testForms() {
+		ChessModel model = new ChessModel();
+		MoveList moves = new MoveList();
+		int knight = Moves.encode(7 * 8 + 6, 5 * 8 + 5);
+		assertEquals(knight, San.parse(model, "Nf3", moves));
+		assertEquals(knight, San.parse(model, "Ngf3+", moves));
+		assertEquals(knight, San.parse(model, "Nf3!?", moves));
+		assertEquals(knight, San.parse(model, "g1f3", moves));
+		assertEquals(knight, San.parse(model, "g1-f3", moves));
+		assertEquals(Moves.encode(6 * 8 + 4, 4 * 8 + 4),
+				San.parse(model, "e4", moves));
+		assertEquals(Moves.encode(6 * 8 + 4, 4 * 8 + 4),
+				San.parse(model, "e2e4", moves));
+		
+		// no legal move fits these
+		assertEquals(Moves.NONE, San.parse(model, "e5", moves));
+		assertEquals(Moves.NONE, San.parse(model, "Nd4", moves));
+		assertEquals(Moves.NONE, San.parse(model, "g1g3", moves));
+		assertEquals(Moves.NONE, San.parse(model, "", moves));
+		assertEquals(Moves.NONE, San.parse(model, "Zz9", moves));
+	}
+
+/*********************************************************************
+Castling is told apart from other moves, and never parses.
+
+@param none
+@return none
+*********************************************************************/
+	@Test
+	public void testCastling() {
+		ChessModel model = ChessModel.fromFen("4k3/8/8/8/8/8/8/R3K2R w");
+		MoveList moves = new MoveList();
+		assertTrue(San.isCastling("O-O"));
+		assertTrue(San.isCastling("0-0-0+"));
+		assertEquals(false, San.isCastling("Ne2"));
+		assertEquals(Moves.NONE, San.parse(model, "O-O", moves));
+		assertEquals(Moves.NONE, San.parse(model, "O-O-O", moves));
+	}
+}
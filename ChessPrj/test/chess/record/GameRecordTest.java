@@ -0,0 +1,177 @@
+package chess.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import chess.ChessModel;
+import chess.MoveList;
+import chess.Moves;
+
+/*********************************************************************
+Checks that games written to a record file are read back move for
+move, with their starting positions and results.
+
+@version March 2013
+*********************************************************************/
+public class GameRecordTest {
+
+	/** a starting position other than the usual one */
+	private static final String FEN = "4k3/pppp4/8/8/8/8/4PPPP/4K3 b - - 0 1";
+
+/*********************************************************************
+Plays a random game and writes it out.
+
+@param writer where the game is written
+@param fen the starting position, or null for the usual one
+@param plies the most moves to play
+@param result the result to record
+@param random the source of the moves
+@return List the moves played
+@throws IOException if the game cannot be written
+*********************************************************************/
+	private static List<Integer> writeGame(GameWriter writer, String fen,
+			int plies, int result, Random random) throws IOException {
+		ChessModel model = fen == null ? new ChessModel() :
+				ChessModel.fromFen(fen);
+		MoveList moves = new MoveList();
+		List<Integer> played = new ArrayList<Integer>();
+		writer.startGame(fen);
+		for (int ply = 0; ply < plies; ply++) {
+			moves.clear();
+			model.generateLegalMoves(moves);
+			if (moves.size() == 0) {
+				break;
+			}
+			int move = moves.get(random.nextInt(moves.size()));
+			writer.addMove(move);
+			model.makeMove(move);
+			model.clearUndo();
+			played.add(move);
+		}
+		writer.endGame(result);
+		return played;
+	}
+
+/*********************************************************************
+Writes games from both kinds of starting position, with every
+result, and reads them back.
+
+@param none
+@return none
+@throws IOException if the records cannot be written or read
+*********************************************************************/
+	@Test
+	public void testRoundTrip() throws IOException {
+		Random random = new Random(1886);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameWriter writer = new GameWriter(bytes);
+		List<List<Integer>> games = new ArrayList<List<Integer>>();
+		for (int game = 0; game < 40; game++) {
+			games.add(writeGame(writer, game % 3 == 0 ? FEN : null,
+					random.nextInt(200), game & 3, random));
+		}
+		writer.close();
+		assertEquals(40, writer.games());
+		
+		GameReader reader = new GameReader(new ByteArrayInputStream(
+				bytes.toByteArray()));
+		ChessModel model = new ChessModel();
+		for (int game = 0; game < 40; game++) {
+			assertTrue(reader.nextGame());
+			assertEquals(game, reader.gameNumber());
+			assertEquals(game & 3, reader.result());
+			assertEquals(game % 3 == 0 ? FEN : ChessModel.START_FEN,
+					reader.startFen());
+			List<Integer> played = games.get(game);
+			assertEquals(played.size(), reader.plies());
+			reader.setUp(model);
+			for (int move : played) {
+				assertEquals(move, reader.nextMove(model));
+				model.makeMove(move);
+			}
+			assertEquals(Moves.NONE, reader.nextMove(model));
+		}
+		assertEquals(false, reader.nextGame());
+		reader.close();
+	}
+
+/*********************************************************************
+A game longer than the undo stack is replayed to its last position,
+and its latest moves can be taken back.
+
+@param none
+@return none
+@throws IOException if the records cannot be written or read
+*********************************************************************/
+	@Test
+	public void testLongGame() throws IOException {
+		int plies = ChessModel.UNDO_CAPACITY + 100;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameWriter writer = new GameWriter(bytes);
+		
+		// knights going back and forth never end the game
+		ChessModel model = new ChessModel();
+		int[] shuffle = {Moves.encode(62, 45), Moves.encode(6, 21),
+				Moves.encode(45, 62), Moves.encode(21, 6)};
+		writer.startGame(null);
+		for (int ply = 0; ply < plies; ply++) {
+			writer.addMove(shuffle[ply & 3]);
+			model.makeMove(shuffle[ply & 3]);
+		}
+		writer.endGame(GameRecord.DRAW);
+		writer.close();
+		
+		GameReader reader = new GameReader(new ByteArrayInputStream(
+				bytes.toByteArray()));
+		assertTrue(reader.nextGame());
+		assertEquals(plies, reader.plies());
+		ChessModel replayed = new ChessModel();
+		reader.replay(replayed);
+		assertEquals(model.toFen(), replayed.toFen());
+		assertEquals(model.hash(), replayed.hash());
+		for (int i = 0; i < 10; i++) {
+			replayed.unmakeMove();
+			model.unmakeMove();
+			assertEquals(model.hash(), replayed.hash());
+		}
+		reader.close();
+	}
+
+/*********************************************************************
+Moves that are not legal are refused, and a file that is not a
+record file is not read.
+
+@param none
+@return none
+@throws IOException if the records cannot be written
+*********************************************************************/
+	@Test
+	public void testBadInput() throws IOException {
+		GameWriter writer = new GameWriter(new ByteArrayOutputStream());
+		writer.startGame(null);
+		try {
+			writer.addMove(Moves.encode(62, 46));
+			fail("Accepted an illegal move");
+		}
+		catch (IllegalArgumentException e) {
+		}
+		writer.close();
+		
+		try {
+			new GameReader(new ByteArrayInputStream("PGN!".getBytes()));
+			fail("Read a file that is not a record file");
+		}
+		catch (IOException e) {
+		}
+	}
+}
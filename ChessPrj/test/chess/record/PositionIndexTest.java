@@ -0,0 +1,180 @@
+package chess.record;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import chess.ChessModel;
+import chess.MoveList;
+import chess.Moves;
+
+/*********************************************************************
+Checks that an index built from games finds every position they
+reached, with the game, ply and next move of each entry.
+
+@version March 2013
+*********************************************************************/
+public class PositionIndexTest {
+
+	/** directory for the run files and the index */
+	private File directory;
+
+	/** the index file */
+	private File file;
+
+/*********************************************************************
+Makes an empty directory to build in.
+
+@param none
+@return none
+@throws IOException if it cannot be made
+*********************************************************************/
+	@Before
+	public void makeDirectory() throws IOException {
+		directory = File.createTempFile("index", "");
+		directory.delete();
+		assertTrue(directory.mkdir());
+		file = new File(directory, "positions.cpi");
+	}
+
+/*********************************************************************
+Deletes the directory, which must hold only the index once it is
+built.
+
+@param none
+@return none
+*********************************************************************/
+	@After
+	public void deleteDirectory() {
+		file.delete();
+		assertEquals(0, directory.list().length);
+		directory.delete();
+	}
+
+/*********************************************************************
+Indexes random games and looks up every position along them.
+
+@param none
+@return none
+@throws IOException if a file cannot be read or written
+*********************************************************************/
+	@Test
+	public void testGames() throws IOException {
+		Random random = new Random(1927);
+		MoveList moves = new MoveList();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GameWriter writer = new GameWriter(bytes);
+		long positions = 0;
+		for (int game = 0; game < 50; game++) {
+			ChessModel model = new ChessModel();
+			writer.startGame(null);
+			for (int ply = 0; ply < 80; ply++) {
+				moves.clear();
+				model.generateLegalMoves(moves);
+				if (moves.size() == 0) {
+					break;
+				}
+				int move = moves.get(random.nextInt(moves.size()));
+				writer.addMove(move);
+				model.makeMove(move);
+				positions++;
+			}
+			writer.endGame(GameRecord.UNKNOWN);
+			positions++;
+		}
+		writer.close();
+		
+		PositionIndexBuilder builder = new PositionIndexBuilder(directory,
+				1);
+		builder.addGames(new GameReader(new ByteArrayInputStream(
+				bytes.toByteArray())));
+		assertEquals(positions, builder.finish(file));
+		
+		PositionIndex index = new PositionIndex(file);
+		try {
+			assertEquals(positions, index.size());
+			
+			// every game starts from the usual position
+			ChessModel model = new ChessModel();
+			assertEquals(50, index.count(model));
+			
+			// replay the games, finding each position with its next move
+			GameReader reader = new GameReader(new ByteArrayInputStream(
+					bytes.toByteArray()));
+			while (reader.nextGame()) {
+				reader.setUp(model);
+				for (int ply = 0; ; ply++) {
+					int move = reader.nextMove(model);
+					long entry = index.find(model);
+					assertTrue(entry >= 0);
+					boolean found = false;
+					for (long e = entry; e < entry + index.count(model);
+							e++) {
+						assertEquals(model.hash(), index.hash(e));
+						found |= index.game(e) == reader.gameNumber() &&
+								index.ply(e) == ply &&
+								index.nextMove(e) == move;
+					}
+					assertTrue(found);
+					if (move == Moves.NONE) {
+						break;
+					}
+					model.makeMove(move);
+				}
+			}
+			assertEquals(-1, index.find(0x123456789ABCDEFL));
+		}
+		finally {
+			index.close();
+		}
+	}
+
+/*********************************************************************
+Entries filling several runs are merged into one sorted index.
+
+@param none
+@return none
+@throws IOException if a file cannot be read or written
+*********************************************************************/
+	@Test
+	public void testRuns() throws IOException {
+		int entries = 200000;
+		PositionIndexBuilder builder = new PositionIndexBuilder(directory,
+				1);
+		Random random = new Random(1935);
+		for (int i = 0; i < entries; i++) {
+			builder.add(random.nextLong(), i, i & 0xFFFF, i & 0xFFF);
+		}
+		assertEquals(entries, builder.finish(file));
+		
+		PositionIndex index = new PositionIndex(file);
+		try {
+			assertEquals(entries, index.size());
+			for (long e = 1; e < entries; e++) {
+				assertTrue(index.hash(e - 1) <= index.hash(e));
+			}
+			
+			// look up the same hashes again
+			random = new Random(1935);
+			for (int i = 0; i < entries; i++) {
+				long entry = index.find(random.nextLong());
+				assertTrue(entry >= 0);
+				assertEquals(i, index.game(entry));
+				assertEquals(i & 0xFFFF, index.ply(entry));
+				assertEquals(i & 0xFFF, index.nextMove(entry));
+			}
+		}
+		finally {
+			index.close();
+		}
+	}
+}